@@ -0,0 +1,43 @@
+package co.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of reading the clock: a single System.nanoTime call and the start/finish pair
+ * the benchmark loop takes around each request, also under concurrent callers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClockBenchmark {
+    @Benchmark
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    @Benchmark
+    public long nanoTimePair() {
+        long startedNs = System.nanoTime();
+        long finishedNs = System.nanoTime();
+        return finishedNs - startedNs;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long nanoTimePair4() {
+        long startedNs = System.nanoTime();
+        long finishedNs = System.nanoTime();
+        return finishedNs - startedNs;
+    }
+}
@@ -0,0 +1,59 @@
+package co.jmh;
+
+import co.stat.Histogram;
+import co.stat.Indicator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of calculating an Indicator after the benchmark: from a raw sample (which
+ * builds the histogram first) and from a histogram recorded while benchmarking, at different
+ * sample sizes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IndicatorBenchmark {
+    @Param({"1000", "100000", "10000000"})
+    public int size;
+
+    private long[] sample;
+    private Histogram histogram;
+
+    @Setup
+    public void setUp() {
+        // exponentially distributed service times with 1 ms mean
+        SplittableRandom random = new SplittableRandom(42);
+        sample = new long[size];
+        histogram = new Histogram();
+        for (int i = 0; i < size; i++) {
+            sample[i] = (long) (-1_000_000 * Math.log(1 - random.nextDouble()));
+            histogram.record(sample[i]);
+        }
+    }
+
+    @Benchmark
+    public Indicator fromSample() {
+        return new Indicator("service time", sample);
+    }
+
+    @Benchmark
+    public Indicator fromHistogram() {
+        return new Indicator("service time", histogram);
+    }
+}
@@ -0,0 +1,84 @@
+package co.jmh;
+
+import co.Load;
+import co.load.Exponential;
+import co.load.Precomputed;
+import co.load.Steady;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of scheduling the next arrival (Load.nextRelativeTimeNs), computed on the fly
+ * (exponential, steady) or precomputed (see Precomputed). The shared variants call the same Load
+ * from several threads, which shows the cost of sharing its state between cores (the loads are not
+ * thread-safe, the benchmarks call them from a single scheduling thread).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoadBenchmark {
+    @State(Scope.Thread)
+    public static class ThreadLoad {
+        @Param({"exponential", "steady", "precomputed"})
+        public String type;
+
+        Load load;
+
+        @Setup
+        public void setUp() {
+            load = newLoad(type);
+        }
+
+        @TearDown
+        public void tearDown() {
+            if (load instanceof Precomputed) { ((Precomputed) load).close(); }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class SharedLoad {
+        @Param({"exponential", "steady"})
+        public String type;
+
+        Load load;
+
+        @Setup
+        public void setUp() {
+            load = newLoad(type);
+        }
+    }
+
+    static Load newLoad(String type) {
+        switch (type) {
+            case "steady": return new Steady(100, TimeUnit.MICROSECONDS);
+            case "precomputed": return new Precomputed(new Exponential(100, TimeUnit.MICROSECONDS));
+            default: return new Exponential(100, TimeUnit.MICROSECONDS);
+        }
+    }
+
+    @Benchmark
+    public long nextRelativeTimeNs(ThreadLoad state) {
+        return state.load.nextRelativeTimeNs();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long nextRelativeTimeNsShared4(SharedLoad state) {
+        return state.load.nextRelativeTimeNs();
+    }
+}
@@ -0,0 +1,89 @@
+package co.jmh;
+
+import co.Benchmark.Recording;
+import co.stat.BenchmarkHistograms;
+import co.stat.OnlineCorrectionScheme;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of recording a single request (Benchmark.Recording.add) in the three recording
+ * modes: timings kept only and both at different capacities (the size of the preallocated arrays
+ * affects cache behaviour), and histograms only (the default), which does not depend on the
+ * capacity.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordingBenchmark {
+
+    /**
+     * A recording keeping the timings, with or without the histograms.
+     */
+    @State(Scope.Thread)
+    public static class Kept {
+        @Param({"1000", "1000000", "10000000"})
+        public int capacity;
+
+        @Param({"kept", "both"})
+        public String mode;
+
+        private Recording recording;
+        private long time;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            recording = mode.equals("kept") ? new Recording(capacity) : new Recording(capacity,
+                    true, new BenchmarkHistograms(new OnlineCorrectionScheme()));
+            time = System.nanoTime();
+        }
+    }
+
+    /**
+     * A recording updating the histograms only.
+     */
+    @State(Scope.Thread)
+    public static class Histograms {
+        private Recording recording;
+        private long time;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            recording = new Recording(0, false,
+                    new BenchmarkHistograms(new OnlineCorrectionScheme()));
+            time = System.nanoTime();
+        }
+    }
+
+    @Benchmark
+    public int add(Kept state) {
+        if (state.recording.size() == state.capacity) {
+            state.recording.setSize(0);
+        }
+        // arrival, start and finish of a request with 50 ns wait and 200 ns processing
+        long time = state.time += 1000;
+        state.recording.add(time, time + 50, time + 250);
+        return state.recording.size();
+    }
+
+    @Benchmark
+    public int addHistograms(Histograms state) {
+        long time = state.time += 1000;
+        state.recording.add(time, time + 50, time + 250);
+        return state.recording.size();
+    }
+}
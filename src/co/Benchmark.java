@@ -1,9 +1,15 @@
 package co;
 
+import co.load.Profile;
+import co.stat.BenchmarkHistograms;
 import co.stat.BenchmarkIndicators;
+import co.stat.Calibration;
+import co.stat.GcMonitor;
+import co.stat.IntervalRecorder;
+import co.stat.OnlineCorrectionScheme;
+import co.stat.PhaseRecorder;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -26,13 +32,21 @@ import java.util.concurrent.TimeUnit;
  *  - Schedule-run-measure
  *  - Warms up the environment
  *  - Statistics calculation
- *  - Some support to prevent from dead code elimination (see Task interface for more)
- *  - Pluggable Task, Load distribution
+ *  - Some support to prevent from dead code elimination (see Task interface and Blackhole)
+ *  - Pluggable Task, Load distribution, Scheduler
  *  - Configurable warm up- and request count
+ *  - Duration based (soak) mode with interval histograms logged as the benchmark goes, in constant
+ *    memory
+ *  - Measures its own overhead and optionally subtracts it from the processing times
+ *  - Batches several operations per timed block for nanosecond-scale tasks
+ *  - Multi-phase load profiles within a single run with per-phase and transition indicators (see
+ *    Profile and PhaseRecorder)
+ *  - Optionally correlates the requests with the GC pauses (see GcMonitor and GcCorrelation)
  *
  * RELATIONS:
  *
  * - Load generation is delegated to a pluggable Load object
+ * - Waiting for the next arrival is delegated to a pluggable Scheduler object
  * - The benchmarked method is represented by a pluggable Task object
  * - Time information is recorded through a Recording object
  * - Statistics is processed, calculated by a Stat object
@@ -45,6 +59,8 @@ public class Benchmark {
      * FEATURES:
      *
      * - Record timings
+     * - Optionally update the histograms of the derived timings as each request is recorded, in
+     *   which case keeping the recorded timings is optional
      *
      * RELATIONS:
      *
@@ -53,16 +69,69 @@ public class Benchmark {
      */
     public static  class Recording {
 
-        // statistics recorded by the benchmark
-        private List<Long> arrivals, starts, finishList;
+        // statistics recorded by the benchmark, preallocated in order to keep the benchmark loop
+        // free of allocation; enqueue/dequeue times are only recorded by benchmarks with a real
+        // request queue
+        private final long[] arrivals, enqueues, dequeues, starts, finishList;
+        private final int serverCount;
+        private final BenchmarkHistograms histograms;
+        private int size;
+
+        // harness overhead, subtracted from the processing times if overheadCorrected
+        private Calibration calibration;
+        private long overheadNs;
+
+        // the GC pauses during the recording, null if they are not monitored
+        private GcMonitor gcMonitor;
+
+        /**
+         * Initialize this recording with room for the given number of requests.
+         */
+        public Recording(int capacity){
+            this(capacity, 1, false);
+        }
+
+        /**
+         * Initialize this recording with room for the given number of requests processed by the
+         * given number of servers (workers). If queueTimings is true, then the measured enqueue and
+         * dequeue times are recorded as well.
+         */
+        public Recording(int capacity, int serverCount, boolean queueTimings){
+            Sys.assertTrue(capacity >= 0 && serverCount > 0);
+
+            this.serverCount = serverCount;
+            histograms = null;
+            arrivals = new long[capacity];
+            starts = new long[capacity];
+            finishList = new long[capacity];
+            enqueues = queueTimings ? new long[capacity] : null;
+            dequeues = queueTimings ? new long[capacity] : null;
+        }
 
         /**
-         * Initialize this recording.
+         * Initialize this recording which updates the given histograms as each request is
+         * recorded. The timings are kept only if keep is true, in which case the capacity must be
+         * large enough for all the requests.
          */
-        public Recording(){
-            arrivals = new ArrayList<>();
-            starts = new ArrayList<>();
-            finishList = new ArrayList<>();
+        public Recording(int capacity, boolean keep, BenchmarkHistograms histograms){
+            this(capacity, 1, keep, histograms);
+        }
+
+        /**
+         * Initialize this recording of the requests processed by the given number of servers which
+         * updates the given histograms as each request is recorded (see above).
+         */
+        public Recording(int capacity, int serverCount, boolean keep,
+                         BenchmarkHistograms histograms){
+            Sys.assertTrue(capacity >= 0 && serverCount > 0 && histograms != null);
+
+            this.serverCount = serverCount;
+            this.histograms = histograms;
+            arrivals = keep ? new long[capacity] : null;
+            starts = keep ? new long[capacity] : null;
+            finishList = keep ? new long[capacity] : null;
+            enqueues = null;
+            dequeues = null;
         }
 
         /**
@@ -70,21 +139,176 @@ public class Benchmark {
          * processing.
          */
         public void add(long arrivalNs, long startNs, long finishNs) {
-            arrivals.add(arrivalNs);
-            starts.add(startNs);
-            finishList.add(finishNs);
+            if (overheadNs > 0) { finishNs = Math.max(startNs, finishNs - overheadNs); }
+            store(arrivalNs, startNs, finishNs);
+        }
+
+        /**
+         * Records the given times as is, ie. without overhead correction (see Benchmark.runBatched,
+         * which corrects the times of a batch itself).
+         */
+        private void store(long arrivalNs, long startNs, long finishNs) {
+            if (arrivals != null) {
+                arrivals[size] = arrivalNs;
+                starts[size] = startNs;
+                finishList[size] = finishNs;
+            }
+            if (histograms != null) { histograms.add(arrivalNs, startNs, finishNs); }
+            size++;
+        }
+
+        /**
+         * Record the given times of the index'th request: its arrival and the time it was put
+         * into the request queue. Called by the thread generating the requests.
+         */
+        public void setArrival(int index, long arrivalNs, long enqueueNs) {
+            arrivals[index] = arrivalNs;
+            enqueues[index] = enqueueNs;
+        }
+
+        /**
+         * Record the given times of the index'th request: the time it was taken from the request
+         * queue and the start/finish time of its processing. Called by the worker thread that
+         * processed the request.
+         */
+        public void setProcessing(int index, long dequeueNs, long startNs, long finishNs) {
+            if (overheadNs > 0) { finishNs = Math.max(startNs, finishNs - overheadNs); }
+            dequeues[index] = dequeueNs;
+            starts[index] = startNs;
+            finishList[index] = finishNs;
         }
 
-        public List<Long> getArrivals() {
-            return arrivals;
+        /**
+         * Sets the number of recorded requests, used when requests are recorded by index (see
+         * setArrival and setProcessing).
+         */
+        public void setSize(int size) {
+            Sys.assertTrue(size >= 0 && (arrivals == null || size <= arrivals.length));
+
+            this.size = size;
+        }
+
+        /**
+         * Sets the calibration of the harness overhead. If overheadCorrected is true, the measure
+         * overhead is subtracted from the finish times (hence from the processing and service
+         * times) of the requests recorded from now on.
+         */
+        public void setCalibration(Calibration calibration, boolean overheadCorrected) {
+            this.calibration = calibration;
+            overheadNs = overheadCorrected && calibration != null ?
+                    calibration.getMeasureOverheadNs() : 0;
         }
 
-        public List<Long> getStarts() {
-            return starts;
+        /**
+         * Returns the calibration of the harness overhead, null if not calibrated.
+         */
+        public Calibration getCalibration() {
+            return calibration;
         }
 
-        public List<Long> getFinishList() {
-            return finishList;
+        /**
+         * Sets the monitor of the GC pauses during the recording (see GcCorrelation).
+         */
+        public void setGcMonitor(GcMonitor gcMonitor) {
+            this.gcMonitor = gcMonitor;
+        }
+
+        /**
+         * Returns the monitor of the GC pauses during the recording, null if not monitored.
+         */
+        public GcMonitor getGcMonitor() {
+            return gcMonitor;
+        }
+
+        /**
+         * Returns true if the measure overhead is subtracted from the recorded processing times.
+         */
+        public boolean isOverheadCorrected() {
+            return overheadNs > 0;
+        }
+
+        /**
+         * Returns the number of recorded requests.
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Returns the number of servers (workers) that processed the requests.
+         */
+        public int getServerCount() {
+            return serverCount;
+        }
+
+        /**
+         * Returns true if the recorded timings are kept, ie. they can be read back.
+         */
+        public boolean isKept() {
+            return arrivals != null;
+        }
+
+        /**
+         * Returns the histograms updated while recording or null if there is none.
+         */
+        public BenchmarkHistograms getHistograms() {
+            return histograms;
+        }
+
+        /**
+         * Returns true if enqueue and dequeue times are recorded.
+         */
+        public boolean hasQueueTimings() {
+            return enqueues != null;
+        }
+
+        public long getArrival(int i) {
+            return arrivals[i];
+        }
+
+        public long getEnqueue(int i) {
+            return enqueues[i];
+        }
+
+        public long getDequeue(int i) {
+            return dequeues[i];
+        }
+
+        public long getStart(int i) {
+            return starts[i];
+        }
+
+        public long getFinish(int i) {
+            return finishList[i];
+        }
+
+        /**
+         * Returns the recorded arrivals. The backing array is returned as is when the recording is
+         * full (the usual case), otherwise a trimmed copy.
+         */
+        public long[] getArrivals() {
+            return trim(arrivals);
+        }
+
+        public long[] getEnqueues() {
+            return trim(enqueues);
+        }
+
+        public long[] getDequeues() {
+            return trim(dequeues);
+        }
+
+        public long[] getStarts() {
+            return trim(starts);
+        }
+
+        public long[] getFinishList() {
+            return trim(finishList);
+        }
+
+        private long[] trim(long[] values) {
+            if (values == null) { return null; }
+            return size == values.length ? values : Arrays.copyOf(values, size);
         }
     }
 
@@ -94,6 +318,12 @@ public class Benchmark {
     private final int warmupCount;
     private final Stat stat;
     private final boolean exportRawStat;
+    private Scheduler scheduler = new co.scheduler.Sleep();
+    private boolean keepRecording;
+    private boolean calibrate = true, overheadCorrection, gcCorrelation;
+    private int operationsPerInvocation = 1;
+    private long durationNs, intervalNs, transitionNs = TimeUnit.SECONDS.toNanos(1);
+    private String intervalLogPath;
 
     /** 
      * Initializes the benchmark with the given arguments.
@@ -111,11 +341,10 @@ public class Benchmark {
     }
 
     /**
-     * The return value is the value returned by the benchmarked method, its current execution. It
-     * is used in order to avoid dead code elimination. See the description of the Task interface
-     * for more.
+     * Consumes the values returned by the benchmarked method in order to avoid dead code
+     * elimination. See Blackhole and the description of the Task interface for more.
      */
-    public Object taskReturnValue;
+    private final Blackhole blackhole = new Blackhole();
 
     /**
      * The main benchmark method. First does warmup, then executes the benchmark. Finally it returns
@@ -124,27 +353,50 @@ public class Benchmark {
     public BenchmarkIndicators run() {
         // init benchmark
         Sys.timeZero();
+        if (load instanceof Profile && durationNs == 0) {
+            // a profile runs for its duration
+            durationNs = ((Profile) load).getDurationNs();
+        }
 
         // configuration info
         Sys.printlnOut("Load: " + load);
         Sys.printlnOut("Task: " + task);
+        Sys.printlnOut("Scheduler: " + scheduler);
         Sys.printlnOut("Warmup count: " + warmupCount);
-        Sys.printlnOut("Request count: " + requestCount);
+        if (operationsPerInvocation > 1) {
+            Sys.printlnOut("Operations per invocation: " + operationsPerInvocation);
+        }
+        if (durationNs > 0) {
+            Sys.printlnOut("Duration: " + durationNs / 1_000_000 + " ms");
+        }
+        else {
+            Sys.printlnOut("Request count: " + requestCount);
+        }
 
-        Sys.printOut("Benchmarking... ");
+        // harness overhead
+        Calibration calibration = null;
+        if (calibrate) { calibration = Calibration.calibrate(); }
 
-        Recording recording;
+        Sys.printOut("Benchmarking... ");
 
-        // warmup
+        // warmup (nothing is recorded)
         long warmupStarted = System.nanoTime();
-        recording = new Recording();
-        run("warmup", warmupCount, recording);
+        run("warmup", warmupCount, null);
+        load.reset();
 
         // benchmark
+        Recording recording = newRecording(requestCount);
+        recording.setCalibration(calibration, overheadCorrection);
+        GcMonitor gcMonitor = gcCorrelation ? new GcMonitor() : null;
+        if (gcMonitor != null) { gcMonitor.start(); }
         long benchmarkStarted = System.nanoTime();
-        recording = new Recording();
         run("benchmark", requestCount, recording);
         long benchmarkFinished = System.nanoTime();
+        if (gcMonitor != null) {
+            gcMonitor.stop();
+            recording.setGcMonitor(gcMonitor);
+        }
+        if (recording.getHistograms() != null) { recording.getHistograms().finish(); }
 
         // runtime info
         long runTime = benchmarkFinished - benchmarkStarted, fullRuntime = benchmarkFinished -
@@ -157,17 +409,54 @@ public class Benchmark {
     }
 
     /**
-     * The benchmarking method that processes both the warm up cycle and the real benchmark.
+     * Creates the recording of the benchmark with room for the given number of requests.
+     */
+    protected Recording newRecording(int requestCount) {
+        OnlineCorrectionScheme correctionScheme = new OnlineCorrectionScheme();
+        BenchmarkHistograms histograms;
+        if (load instanceof Profile) {
+            histograms = newPhaseRecorder((Profile) load, correctionScheme);
+        }
+        else if (intervalNs > 0) {
+            histograms = new IntervalRecorder(intervalNs, intervalLogPath, correctionScheme);
+        }
+        else {
+            histograms = new BenchmarkHistograms(correctionScheme);
+        }
+        boolean keep = durationNs == 0 && (keepRecording || exportRawStat || gcCorrelation);
+        return new Recording(keep ? requestCount : 0, keep, histograms);
+    }
+
+    private PhaseRecorder newPhaseRecorder(Profile profile,
+                                           OnlineCorrectionScheme correctionScheme) {
+        String[] names = new String[profile.getPhaseCount()];
+        long[] endsNs = new long[names.length];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = profile.getPhaseName(i);
+            endsNs[i] = profile.getPhaseEndNs(i);
+        }
+        return new PhaseRecorder(names, endsNs, transitionNs, correctionScheme);
+    }
+
+    /**
+     * The benchmarking method that processes both the warm up cycle and the real benchmark. The
+     * recording might be null, in which case timings are not recorded (warm up).
      */
     protected long run(String name, int requestCount, Recording recording) {
+        if (operationsPerInvocation > 1) { return runBatched(name, requestCount, recording); }
+
         Sys.debug(name + " started");
         
-        long startedNs, finishedNs = Long.MIN_VALUE, arrivalNs, benchmarkStartedNs = 0l;
-        int processedCount = 0;
+        long startedNs, finishedNs = Long.MIN_VALUE, arrivalNs, benchmarkStartedNs = 0l, endNs,
+                maxCount, processedCount = 0;
 
         arrivalNs = System.nanoTime();
         benchmarkStartedNs = System.nanoTime();
-        while(processedCount < requestCount) {
+        // the duration applies to the benchmark only (not to the warm up) instead of the count
+        boolean durationBased = durationNs > 0 && recording != null;
+        endNs = durationBased ? benchmarkStartedNs + durationNs : Long.MAX_VALUE;
+        maxCount = durationBased ? Long.MAX_VALUE : requestCount;
+        while(processedCount < maxCount && arrivalNs < endNs) {
             // if (Sys.DEBUG) { Sys.debug("processing: " + processedCount); }
             
             // schedule
@@ -176,14 +465,14 @@ public class Benchmark {
             
             // run & measure FIXME: can the compiler reorder these actions?
             startedNs = System.nanoTime();
-            taskReturnValue = task.execute();
+            task.execute(blackhole);
             finishedNs = System.nanoTime();
             
             // increment processed count
             processedCount++;
             
             // record stats
-            recording.add(arrivalNs, startedNs, finishedNs);
+            if (recording != null) { recording.add(arrivalNs, startedNs, finishedNs); }
         }
 
         Sys.debug(name + " finished");
@@ -192,24 +481,246 @@ public class Benchmark {
     }
     
     /**
-     * Sleeps until the given arrival time. The time must be in line with System.nanoTime().
+     * The benchmarking method when operationsPerInvocation (K) is greater than 1: the arrivals are
+     * processed in batches of K, each batch is timed by a single pair of clock reads, hence the
+     * clock overhead is shared by K operations.
+     *
+     * PROCESS: The Load generates the next K arrivals, the harness waits for the first one (if the
+     * previous batch finished before it), then executes the Task K times. The time of an operation
+     * is the time of the batch (minus the measure overhead if overhead correction is on) divided by
+     * K. Each operation is recorded as a request of its own arrival, on the timeline of a single
+     * server processing the operations one after the other:
+     *
+     *      start = max(arrival, previous finish)   (the first of a batch: not before the batch)
+     *      finish = start + operation time
      *
-     * TODO: may move to Sys
+     * So operations arriving while the batch runs are accounted as if they waited for the previous
+     * ones, the same way as the correction scheme does (see CorrectionScheme).
      */
-    protected void sleepUntilNextRequest(long arrivalNs) {
-        long nowNs;
-        int sleepTimeMs, sleepTimeNs;
-        while ((nowNs = System.nanoTime()) < arrivalNs) {
-            sleepTimeMs = (int) TimeUnit.MILLISECONDS.convert(arrivalNs 
-                - nowNs, TimeUnit.NANOSECONDS);
-            sleepTimeNs = (int) (arrivalNs - nowNs - 
-                TimeUnit.NANOSECONDS.convert(sleepTimeMs, TimeUnit.MILLISECONDS));
-            try { Thread.sleep(sleepTimeMs, sleepTimeNs); }
-            catch(InterruptedException e) { Sys.debug("scheduled wait interrupted"); }
+    protected long runBatched(String name, int requestCount, Recording recording) {
+        Sys.debug(name + " started (batched)");
+
+        int batchSize = operationsPerInvocation, count;
+        long[] batchArrivals = new long[batchSize];
+        long startedNs, finishedNs = Long.MIN_VALUE, arrivalNs, benchmarkStartedNs, endNs,
+                maxCount, processedCount = 0, operationNs, virtualStartNs,
+                virtualFinishNs = Long.MIN_VALUE;
+        long overheadNs = recording != null ? recording.overheadNs : 0;
+
+        arrivalNs = System.nanoTime();
+        benchmarkStartedNs = System.nanoTime();
+        boolean durationBased = durationNs > 0 && recording != null;
+        endNs = durationBased ? benchmarkStartedNs + durationNs : Long.MAX_VALUE;
+        maxCount = durationBased ? Long.MAX_VALUE : requestCount;
+        while(processedCount < maxCount && arrivalNs < endNs) {
+            // schedule the batch
+            count = (int) Math.min(batchSize, maxCount - processedCount);
+            for (int i = 0; i < count; i++) {
+                arrivalNs += load.nextRelativeTimeNs();
+                batchArrivals[i] = arrivalNs;
+            }
+            if (finishedNs < batchArrivals[0]) { sleepUntilNextRequest(batchArrivals[0]); }
+
+            // run & measure
+            startedNs = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                task.execute(blackhole);
+            }
+            finishedNs = System.nanoTime();
+
+            processedCount += count;
+
+            // record stats per operation
+            if (recording != null) {
+                operationNs = Math.max(0, finishedNs - startedNs - overheadNs) / count;
+                virtualStartNs = Math.max(startedNs, virtualFinishNs);
+                for (int i = 0; i < count; i++) {
+                    virtualStartNs = Math.max(batchArrivals[i], virtualStartNs);
+                    virtualFinishNs = virtualStartNs + operationNs;
+                    recording.store(batchArrivals[i], virtualStartNs, virtualFinishNs);
+                    virtualStartNs = virtualFinishNs;
+                }
+            }
         }
+
+        Sys.debug(name + " finished");
+
+        return System.nanoTime() - benchmarkStartedNs;
     }
-    
-    
+
+    /**
+     * Waits until the given arrival time by the scheduler. The time must be in line with
+     * System.nanoTime().
+     */
+    protected void sleepUntilNextRequest(long arrivalNs) {
+        scheduler.waitUntil(arrivalNs);
+    }
+
+    /**
+     * Asserts that none of the settings handled by the run loop of this class only is set (the
+     * duration, the interval log, the operations per invocation and a Profile load). Called by the
+     * subclasses running their own loop.
+     */
+    protected void assertDefaultRunLoopSettings() {
+        Sys.assertTrue(durationNs == 0 && intervalNs == 0 && operationsPerInvocation == 1 &&
+                !(load instanceof Profile));
+    }
+
+    public Blackhole getBlackhole() {
+        return blackhole;
+    }
+
+    public Stat getStat() {
+        return stat;
+    }
+
+    public Load getLoad() {
+        return load;
+    }
+
+    public Task getTask() {
+        return task;
+    }
+
+    public int getRequestCount() {
+        return requestCount;
+    }
+
+    public int getWarmupCount() {
+        return warmupCount;
+    }
+
+    public boolean isKeepRecording() {
+        return keepRecording;
+    }
+
+    /**
+     * Sets whether the recorded timings are kept in memory or only the histograms of the derived
+     * timings are updated (default). In the latter case the memory footprint does not depend on the
+     * request count. Timings are always kept if the raw stat is exported.
+     */
+    public void setKeepRecording(boolean keepRecording) {
+        this.keepRecording = keepRecording;
+    }
+
+    /**
+     * Returns the duration of the benchmark, 0 if it is request count based (default).
+     */
+    public long getDurationNs() {
+        return durationNs;
+    }
+
+    /**
+     * Sets the benchmark to run for the given duration instead of the request count (soak mode).
+     * The warm up is still request count based. Recorded timings are not kept in this mode, only
+     * the histograms are updated.
+     */
+    public void setDuration(long duration, TimeUnit unit) {
+        Sys.assertTrue(duration >= 0);
+
+        durationNs = TimeUnit.NANOSECONDS.convert(duration, unit);
+    }
+
+    /**
+     * Returns the interval of the interval log, 0 if it is not written (default).
+     */
+    public long getIntervalNs() {
+        return intervalNs;
+    }
+
+    /**
+     * Sets the histograms to be recorded in the given intervals and each interval to be written to
+     * the given log file as it closes (see IntervalRecorder). The indicators are calculated from
+     * the merge of the intervals.
+     */
+    public void setIntervalLog(long interval, TimeUnit unit, String path) {
+        Sys.assertTrue(interval > 0 && path != null);
+
+        intervalNs = TimeUnit.NANOSECONDS.convert(interval, unit);
+        intervalLogPath = path;
+    }
+
+    public long getTransitionNs() {
+        return transitionNs;
+    }
+
+    /**
+     * Sets the length of the transition window at the beginning of each phase of a Profile load,
+     * reported separately (see PhaseRecorder), 1 second by default. Phases are recorded instead of
+     * the interval log.
+     */
+    public void setTransition(long transition, TimeUnit unit) {
+        Sys.assertTrue(transition > 0);
+
+        transitionNs = TimeUnit.NANOSECONDS.convert(transition, unit);
+    }
+
+    public boolean isGcCorrelation() {
+        return gcCorrelation;
+    }
+
+    /**
+     * Sets whether the GC pauses are monitored during the benchmark and the indicators of the
+     * requests affected by a pause are reported separately from the clean ones (see
+     * GcCorrelation), false by default. The recorded timings are kept, unless in duration mode
+     * where only the pauses are reported.
+     */
+    public void setGcCorrelation(boolean gcCorrelation) {
+        this.gcCorrelation = gcCorrelation;
+    }
+
+    public boolean isCalibrate() {
+        return calibrate;
+    }
+
+    /**
+     * Sets whether the harness overhead is measured before the benchmark (default) and reported
+     * alongside the indicators (see Calibration).
+     */
+    public void setCalibrate(boolean calibrate) {
+        this.calibrate = calibrate;
+    }
+
+    public boolean isOverheadCorrection() {
+        return overheadCorrection;
+    }
+
+    /**
+     * Sets whether the measured harness overhead is subtracted from the processing (and service)
+     * times, off by default. Meaningful for very short tasks, requires calibration.
+     */
+    public void setOverheadCorrection(boolean overheadCorrection) {
+        this.overheadCorrection = overheadCorrection;
+    }
+
+    public int getOperationsPerInvocation() {
+        return operationsPerInvocation;
+    }
+
+    /**
+     * Sets the number of operations (Task executions) timed together, 1 by default. For tasks
+     * comparable to the clock overhead (eg. Counter) larger batches give per operation times which
+     * are dominated by the task instead of the clock (see runBatched).
+     */
+    public void setOperationsPerInvocation(int operationsPerInvocation) {
+        Sys.assertTrue(operationsPerInvocation > 0);
+
+        this.operationsPerInvocation = operationsPerInvocation;
+    }
+
+    public Scheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Sets the strategy of waiting for the next arrival, the default is co.scheduler.Sleep.
+     */
+    public void setScheduler(Scheduler scheduler) {
+        Sys.assertTrue(scheduler != null);
+
+        this.scheduler = scheduler;
+    }
+
     public static void main(String[] args) throws Exception{
         Load load = new co.load.Steady(4100, TimeUnit.MICROSECONDS);
         // Load load = new co.load.Exponential(900, TimeUnit.MICROSECONDS);
@@ -225,6 +736,13 @@ public class Benchmark {
         // Sys.PRINTOUT = false;
         Benchmark benchmark = new Benchmark(load, task, requestCount, warmupCount,
                 new Stat(), exportRawStat);
+        // benchmark.setScheduler(new co.scheduler.ParkSpin(100, TimeUnit.MICROSECONDS));
+        // benchmark.setOverheadCorrection(true);
+        // benchmark.setOperationsPerInvocation(100);
+
+        // soak mode
+        // benchmark.setDuration(24, TimeUnit.HOURS);
+        // benchmark.setIntervalLog(10, TimeUnit.SECONDS, "interval_stat.csv");
 
         // run benchmark
         benchmark.run();
@@ -0,0 +1,82 @@
+package co;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * A sink for the results of the benchmarked method, guards against dead code elimination
+ * (inspired by the Blackhole of JMH[1]).
+ *
+ * FEATURES:
+ *
+ * - Primitive overloads, so results are consumed without boxing
+ * - No allocation and no shared writes per call: primitives are compared against two volatile
+ *   fields that never match, so the compiler must compute the value but the branch is never taken
+ * - Objects are published (through a weak reference) only on a sparse, randomized subset of calls,
+ *   so the reference escapes as far as the compiler knows
+ * - The fields are padded on both sides, so a sink does not share a cache line with other objects
+ *   (eg. the sink of another worker thread)
+ *
+ * RELATIONS:
+ *
+ * - Passed to Task.execute(Blackhole) by the benchmarks, one sink per measuring thread
+ *
+ * References:
+ *
+ * - [1] <https://github.com/openjdk/jmh/blob/master/jmh-core/src/main/java/org/openjdk/jmh/infra/Blackhole.java>
+ */
+public class Blackhole extends BlackholeFields {
+    // padding after the fields
+    long q01, q02, q03, q04, q05, q06, q07, q08, q09, q10, q11, q12, q13, q14, q15, q16;
+
+    public void consume(long value) {
+        if (value == l1 & value == l2) { fail(); }
+    }
+
+    public void consume(int value) {
+        if (value == i1 & value == i2) { fail(); }
+    }
+
+    public void consume(double value) {
+        if (value == d1 & value == d2) { fail(); }
+    }
+
+    public void consume(boolean value) {
+        if (value == z1 & value == z2) { fail(); }
+    }
+
+    public void consume(Object value) {
+        int mask = objectMask;
+        int random = (objectRandom = objectRandom * 1664525 + 1013904223);
+        if ((random & mask) == 0) {
+            // rarely, and more and more rarely: publish the object
+            objectSink = new WeakReference<>(value);
+            objectMask = (mask << 1) + 1;
+        }
+    }
+
+    private void fail() {
+        throw new IllegalStateException("the values of the blackhole fields must differ");
+    }
+}
+
+/**
+ * Padding before the fields of Blackhole. Superclass fields are laid out first, hence the padding
+ * is not reordered among the fields.
+ */
+abstract class BlackholePadding {
+    long p01, p02, p03, p04, p05, p06, p07, p08, p09, p10, p11, p12, p13, p14, p15, p16;
+}
+
+/**
+ * The fields of Blackhole: pairs of volatile fields with different values and the state of the
+ * object sink.
+ */
+abstract class BlackholeFields extends BlackholePadding {
+    volatile long l1 = 1, l2 = 2;
+    volatile int i1 = 1, i2 = 2;
+    volatile double d1 = 1, d2 = 2;
+    volatile boolean z1 = false, z2 = true;
+
+    int objectRandom = (int) System.nanoTime(), objectMask = 1;
+    Object objectSink;
+}
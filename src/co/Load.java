@@ -18,4 +18,11 @@ public interface Load {
       * between two consecutive requests.
       */
     public long nextRelativeTimeNs();
+
+    /**
+     * Restarts the load, eg. a Profile starts over from its first phase. Called by the Benchmark
+     * after the warmup. Does nothing by default.
+     */
+    public default void reset() {
+    }
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package co;
+
+/**
+ * Represents the strategy of waiting for the arrival of the next request.
+ *
+ * FEATURES:
+ *
+ * - Should return as close to (but not before) the given time as possible
+ *
+ * RELATIONS:
+ *
+ * - The Scheduler is called by the Benchmark when waiting for the next scheduled arrival. How late
+ *   it returns is reported as the schedule lateness indicator.
+ */
+public interface Scheduler {
+
+    /**
+     * Waits until the given time. The time must be in line with System.nanoTime().
+     */
+    public void waitUntil(long timeNs);
+}
@@ -1,6 +1,7 @@
 package co;
 
 import co.stat.BenchmarkIndicators;
+import co.stat.Bootstrap;
 import co.stat.BenchmarkRaw;
 
 /**
@@ -22,6 +23,9 @@ import co.stat.BenchmarkRaw;
  *
  */
 public class Stat {
+    // estimates the confidence intervals of the indicators, null if they are not estimated
+    private Bootstrap bootstrap;
+
     /**
      * Process statistics after benchmark execution is done.
      */
@@ -30,13 +34,29 @@ public class Stat {
         raw.calculate();
 
         BenchmarkIndicators indicators = new BenchmarkIndicators(raw);
+        indicators.setBootstrap(bootstrap);
         indicators.calculate();
         indicators.printOut();
 
-        if (export) {
-            raw.toCSV("raw_stat.csv");
+        if (export && recording.isKept()) {
+            raw.toBinary("raw_stat.bin");
+        }
+        if (export && recording.getGcMonitor() != null) {
+            recording.getGcMonitor().toCSV("gc_pauses.csv");
         }
 
         return indicators;
     }
+
+    /**
+     * Sets the bootstrap estimating the confidence intervals of the indicators, null (default)
+     * disables the estimation.
+     */
+    public void setBootstrap(Bootstrap bootstrap) {
+        this.bootstrap = bootstrap;
+    }
+
+    public Bootstrap getBootstrap() {
+        return bootstrap;
+    }
 }
@@ -2,7 +2,7 @@ package co;
 
 /**
  * Represents the task interface for the methods to be benchmarked. Has some support to prevent
- * dead code elimination.
+ * dead code elimination (see Blackhole).
  *
  * FEATURES:
  *
@@ -18,8 +18,7 @@ public interface Task {
     
     /**
      * Executes the logic represented by the Task. The return object is just a trick in order to
-     * avoid dead code elimination. The returned object will be passed to the Stat component,
-     * hence it will make it more difficult to detect dead code.
+     * avoid dead code elimination. Benchmarks pass it to a Blackhole (see execute(Blackhole)).
      *
      * See:
      *
@@ -32,4 +31,13 @@ public interface Task {
      * - <http://daniel.mitterdorfer.name/articles/2014/benchmarking-flaws/>
      */
     public Object execute();
-}
\ No newline at end of file
+
+    /**
+     * Executes the logic represented by the Task and passes its result to the given blackhole.
+     * This is the method the benchmarks call. Tasks with a primitive result should override it and
+     * consume the primitive, so the result is not boxed within the measured window.
+     */
+    public default void execute(Blackhole blackhole) {
+        blackhole.consume(execute());
+    }
+}
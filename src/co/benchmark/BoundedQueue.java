@@ -0,0 +1,41 @@
+package co.benchmark;
+
+import co.Sys;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * A bounded queue of request indices which is safe for multiple producers as well, backed by an
+ * ArrayBlockingQueue. If the queue is full, offer blocks until a consumer frees a slot
+ * (backpressure). Unlike the RingQueue it takes a lock per operation and boxes request indices
+ * above 127, hence it is used only where a queue has more than one producer (see Pipeline).
+ */
+public class BoundedQueue implements RequestQueue {
+    private final ArrayBlockingQueue<Integer> queue;
+
+    /**
+     * Initializes the queue with room for the given number of requests.
+     */
+    public BoundedQueue(int capacity) {
+        Sys.assertTrue(capacity > 0);
+
+        queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    @Override
+    public void offer(int request) {
+        try { queue.put(request); }
+        catch (InterruptedException e) { Sys.debug("offer interrupted"); }
+    }
+
+    @Override
+    public int poll() {
+        Integer request = queue.poll();
+        return request == null ? -1 : request;
+    }
+
+    @Override
+    public String toString() {
+        return "bounded blocking queue of " + (queue.size() + queue.remainingCapacity());
+    }
+}
@@ -0,0 +1,294 @@
+package co.benchmark;
+
+import co.Benchmark;
+import co.Blackhole;
+import co.Load;
+import co.Stat;
+import co.Sys;
+import co.Task;
+import co.stat.BenchmarkIndicators;
+import co.stat.Histogram;
+import co.stat.Indicator;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents a closed-loop benchmark: N concurrent users, each sends a request, waits for the
+ * response, thinks, then sends the next one. This is how most load generators (and many real
+ * clients) work, and it is the textbook case of coordinated omission: while the service stalls,
+ * the users do not send the requests they would have sent.
+ *
+ * PROCESS: Each user runs in its own thread. The think time between the response and the next
+ * request follows the given Load distribution. Each request is recorded as measured, in the order
+ * of the send times (arrival, enqueue and dequeue: the scheduled send time), hence the processing
+ * time (from the actual send to the response) is the measured (coordinated) latency that a closed
+ * loop load generator reports, the dequeue time is the lateness of the scheduler (see Scheduler)
+ * and the service time is their sum.
+ *
+ * Besides, the latency from the intended schedule is recorded as well. The user intends to send
+ * a request in every expected interval:
+ *
+ *      expected interval = E + think
+ *
+ * where E is the expected service time. If a response takes longer than that, the requests the
+ * user would have sent in the meantime are omitted, and each of them would have waited for the
+ * end of the stall. Hence, as the expected interval correction of HdrHistogram[1], the latency
+ * from the scheduled send of each request (L) is recorded into the intended latency histogram
+ * together with the latencies of the omitted requests:
+ *
+ *      L, L - interval, L - 2 * interval, ... while not less than the interval
+ *
+ * The expected service time is set by setExpectedServiceTime or it is the median processing time
+ * of the warmup.
+ *
+ * FEATURES:
+ *
+ * - Reports how much the closed loop under-reports the 99% percentile of the latency
+ *
+ * NOTES:
+ *
+ * - The Task must be thread-safe
+ * - The think time Load is shared by the users, the draws are synchronized (outside the measured
+ *   window), hence seeded loads are reproducible only up to the interleaving of the users
+ * - The request count is the total of all users
+ * - The users send one request at a time, hence the duration (soak mode), the interval log, the
+ *   operations per invocation and Profile loads are not supported
+ *
+ * References:
+ *
+ * - [1] <https://github.com/HdrHistogram/HdrHistogram/blob/master/src/main/java/org/HdrHistogram/AbstractHistogram.java>
+ *   (recordValueWithExpectedInterval)
+ */
+public class ClosedLoop extends Benchmark {
+    private final int userCount;
+
+    // the expected service time, -1 if it is the median processing time of the warmup
+    private long expectedServiceNs = -1;
+
+    // the expected service time of the current run
+    private long expectedNs;
+
+    // the latency from the intended schedule of the last run, null before the first run
+    private Indicator intendedLatency;
+
+    /**
+     * Initializes the benchmark with the given arguments, the Load is the think time distribution.
+     */
+    public ClosedLoop(Load thinkTime, Task task, int requestCount, int warmupCount, Stat stat,
+                      boolean exportRawStat, int userCount) {
+        super(thinkTime, task, requestCount, warmupCount, stat, exportRawStat);
+        Sys.assertTrue(userCount > 0);
+
+        this.userCount = userCount;
+    }
+
+    @Override
+    public BenchmarkIndicators run() {
+        Sys.assertTrue(expectedServiceNs >= 0 || getWarmupCount() > 0);
+        assertDefaultRunLoopSettings();
+
+        Sys.printlnOut("Closed loop: " + userCount + " users, the Load is the think time");
+        BenchmarkIndicators indicators = super.run();
+
+        int MILLION = 1_000_000;
+        long measured = indicators.getProcessing().getPercentile(),
+                intended = intendedLatency.getPercentile();
+        Sys.printlnOut(String.format("  %25s: %f ms", "expected service time",
+                (double) expectedNs / MILLION));
+        Sys.printlnOut("  " + intendedLatency);
+        Sys.printlnOut(String.format(
+                "  %25s: measured 99%%: %f ms, intended 99%%: %f ms (intended/measured: %.2fx)",
+                "closed loop", (double) measured / MILLION, (double) intended / MILLION,
+                (double) intended / Math.max(1, measured)));
+        return indicators;
+    }
+
+    @Override
+    protected Recording newRecording(int requestCount) {
+        return new Recording(requestCount, userCount, true);
+    }
+
+    /**
+     * Starts the users and waits for them, then merges the timings of the users into the recording
+     * (or into the expected service time after the warmup).
+     */
+    @Override
+    protected long run(String name, int requestCount, Recording recording) {
+        Sys.debug(name + " started");
+
+        if (expectedServiceNs >= 0) { expectedNs = expectedServiceNs; }
+
+        // start users
+        User[] users = new User[userCount];
+        Thread[] threads = new Thread[userCount];
+        long benchmarkStartedNs = System.nanoTime();
+        for (int i = 0; i < userCount; i++) {
+            users[i] = new User(requestCount / userCount + (i < requestCount % userCount ? 1 : 0),
+                    benchmarkStartedNs);
+            threads[i] = new Thread(users[i], name + "-user-" + i);
+            threads[i].start();
+        }
+
+        // wait for the users
+        for (Thread thread : threads) {
+            try { thread.join(); }
+            catch (InterruptedException e) { Sys.debug("waiting for users interrupted"); }
+        }
+        long benchmarkFinishedNs = System.nanoTime();
+
+        if (recording != null) {
+            merge(users, recording);
+            Histogram intended = new Histogram();
+            for (User user : users) { intended.add(user.intended); }
+            intendedLatency = new Indicator("intended latency", intended);
+        }
+        else if (expectedServiceNs < 0) {
+            // warmup: the expected service time is the median processing time
+            Histogram processing = new Histogram();
+            for (User user : users) {
+                for (int i = 0; i < user.count; i++) {
+                    processing.record(user.finishes[i] - user.starts[i]);
+                }
+            }
+            expectedNs = processing.getTotalCount() > 0 ? processing.getValueAtPercentile(50) : 0;
+        }
+
+        Sys.debug(name + " finished");
+
+        return benchmarkFinishedNs - benchmarkStartedNs;
+    }
+
+    /**
+     * Records the timings of the users in the order of their send time.
+     */
+    private void merge(User[] users, Recording recording) {
+        PriorityQueue<User> heads = new PriorityQueue<>(userCount,
+                (a, b) -> Long.compare(a.sends[a.next], b.sends[b.next]));
+        for (User user : users) {
+            if (user.count > 0) { heads.add(user); }
+        }
+
+        int index = 0;
+        User user;
+        while ((user = heads.poll()) != null) {
+            int i = user.next++;
+            recording.setArrival(index, user.sends[i], user.sends[i]);
+            recording.setProcessing(index, user.sends[i], user.starts[i], user.finishes[i]);
+            index++;
+            if (user.next < user.count) { heads.add(user); }
+        }
+        recording.setSize(index);
+    }
+
+    public int getUserCount() {
+        return userCount;
+    }
+
+    public long getExpectedServiceTimeNs() {
+        return expectedServiceNs;
+    }
+
+    /**
+     * Sets the expected service time of the intended schedule, by default it is the median
+     * processing time of the warmup.
+     */
+    public void setExpectedServiceTime(long expectedServiceTime, TimeUnit unit) {
+        Sys.assertTrue(expectedServiceTime >= 0);
+
+        expectedServiceNs = TimeUnit.NANOSECONDS.convert(expectedServiceTime, unit);
+    }
+
+    /**
+     * Returns the latency from the intended schedule of the last run (see the class description).
+     */
+    public Indicator getIntendedLatency() {
+        return intendedLatency;
+    }
+
+    /**
+     * A user that sends its requests one after the other and records their timings.
+     */
+    private class User implements Runnable {
+        private final int count;
+        private final long startedNs;
+
+        // timings of the requests, preallocated to keep the loop free of allocation
+        private final long[] sends, starts, finishes;
+
+        // the latencies from the intended schedule
+        private final Histogram intended = new Histogram();
+
+        // the next request to merge
+        private int next;
+
+        /**
+         * Consumes the values returned by the benchmarked method, one per user (see WorkerPool).
+         */
+        private final Blackhole blackhole = new Blackhole();
+
+        User(int count, long startedNs) {
+            this.count = count;
+            this.startedNs = startedNs;
+            sends = new long[count];
+            starts = new long[count];
+            finishes = new long[count];
+        }
+
+        @Override
+        public void run() {
+            Load thinkTime = getLoad();
+            Task task = getTask();
+            long think, sendNs, startNs, finishNs = startedNs, latency, interval;
+            for (int i = 0; i < count; i++) {
+                // think
+                synchronized (thinkTime) { think = thinkTime.nextRelativeTimeNs(); }
+                sendNs = finishNs + think;
+                sleepUntilNextRequest(sendNs);
+
+                // send & wait for the response
+                startNs = System.nanoTime();
+                task.execute(blackhole);
+                finishNs = System.nanoTime();
+
+                sends[i] = sendNs;
+                starts[i] = startNs;
+                finishes[i] = finishNs;
+
+                // the latency from the scheduled send and those of the omitted requests
+                latency = finishNs - sendNs;
+                interval = Math.max(1, expectedNs + think);
+                intended.record(latency);
+                for (long omitted = latency - interval; omitted >= interval; omitted -= interval) {
+                    intended.record(omitted);
+                }
+            }
+        }
+    }
+
+    /**
+     * Benchmarks an I/O bound task with occasional stalls by 8 closed-loop users.
+     */
+    public static void main(String[] args) throws Exception {
+        Task sleep = new co.task.Sleep(1, TimeUnit.MILLISECONDS),
+                stall = new co.task.Sleep(200, TimeUnit.MILLISECONDS);
+        java.util.concurrent.atomic.AtomicInteger counter =
+                new java.util.concurrent.atomic.AtomicInteger();
+        Task task = new Task() {
+            // a 200 ms stall in every 2000 requests
+            @Override
+            public Object execute() {
+                return counter.incrementAndGet() % 2000 == 0 ? stall.execute() : sleep.execute();
+            }
+
+            @Override
+            public String toString() {
+                return sleep + ", stalls for 200 ms in every 2000 requests";
+            }
+        };
+
+        boolean exportRawStat = false;
+        new ClosedLoop(new co.load.Exponential(10, TimeUnit.MILLISECONDS), task, 20_000, 2_000,
+                new Stat(), exportRawStat, 8).run();
+    }
+}
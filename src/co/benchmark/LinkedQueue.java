@@ -0,0 +1,28 @@
+package co.benchmark;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * An unbounded, lock-free queue of request indices backed by a ConcurrentLinkedQueue. Unlike the
+ * RingQueue it allocates a node (and possibly an Integer) per request, hence it is mainly useful to
+ * compare queue implementations.
+ */
+public class LinkedQueue implements RequestQueue {
+    private final ConcurrentLinkedQueue<Integer> queue = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public void offer(int request) {
+        queue.offer(request);
+    }
+
+    @Override
+    public int poll() {
+        Integer request = queue.poll();
+        return request == null ? -1 : request;
+    }
+
+    @Override
+    public String toString() {
+        return "lock-free linked queue";
+    }
+}
@@ -0,0 +1,318 @@
+package co.benchmark;
+
+import co.Benchmark;
+import co.Blackhole;
+import co.Load;
+import co.Stat;
+import co.Sys;
+import co.Task;
+import co.stat.BenchmarkHistograms;
+import co.stat.BenchmarkIndicators;
+import co.stat.CorrectionScheme;
+import co.stat.Histogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Represents an open-loop benchmark of a pipeline (tandem) of services: each request is processed
+ * by a chain of Task stages (eg. parse, compute, serialize), each stage has its own request queue
+ * and worker threads.
+ *
+ * PROCESS: A dedicated arrival generator thread (the one calling run) schedules the requests
+ * according to the given Load distribution and puts them into the queue of the first stage,
+ * independently of how the stages keep up. The workers of each stage take the next request from
+ * the queue of their stage, execute the Task of the stage, then put the request into the queue of
+ * the next stage. The queues between the stages are bounded: if a stage falls behind, the workers
+ * of the previous stage block (backpressure).
+ *
+ * FEATURES:
+ *
+ * - Measures arrival, enqueue, dequeue, start and finish time of every request at every stage,
+ *   the arrival of a request at a stage is its finish at the previous stage
+ * - Per-stage indicators (the same as those of a WorkerPool)
+ * - End-to-end indicators, where (summed over the stages):
+ *
+ *      processing = the processing times
+ *      dequeue = the dequeue times
+ *      wait = the time spent in the queues
+ *      service = finish at the last stage - arrival
+ *
+ *   and the calculated service time is estimated by the tandem extension of the correction
+ *   scheme (see CorrectionScheme.estimateTandemServiceTimes)
+ *
+ * NOTES:
+ *
+ * - The Tasks must be thread-safe if their stage has more than one worker
+ * - Idle workers spin on their queue, so for accurate results the machine should have at least as
+ *   many cores as workers + 1
+ * - The stages process requests in the order they finish at the previous stage, with multiple
+ *   workers this can differ from the order of arrival, which the per-stage indicators assume
+ * - The benchmark runs its own loop, hence the duration, the interval log, the operations per
+ *   invocation and Profile loads are not supported
+ */
+public class Pipeline extends Benchmark {
+    private final Task[] stages;
+    private final int[] workerCounts;
+    private final int queueCapacity;
+
+    // the queue of each stage, created per run
+    private RequestQueue[] queues;
+
+    // the number of producers of each queue still running: the generator for the first one, the
+    // workers of the previous stage for the others
+    private AtomicIntegerArray producerCounts;
+
+    // the recording of each stage, created by newRecording
+    private Recording[] stageRecordings;
+
+    /**
+     * Initializes the benchmark with the given arguments: the Task and the number of workers of
+     * each stage and the capacity of the queues between the stages.
+     */
+    public Pipeline(Load load, Task[] stages, int[] workerCounts, int requestCount,
+                    int warmupCount, Stat stat, boolean exportRawStat, int queueCapacity) {
+        super(load, stages[0], requestCount, warmupCount, stat, exportRawStat);
+        Sys.assertTrue(stages.length == workerCounts.length && queueCapacity > 0);
+        for (int workerCount : workerCounts) { Sys.assertTrue(workerCount > 0); }
+
+        this.stages = stages.clone();
+        this.workerCounts = workerCounts.clone();
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Runs the benchmark and prints the end-to-end indicators, then the indicators of each stage.
+     * Returns the end-to-end indicators.
+     */
+    @Override
+    public BenchmarkIndicators run() {
+        assertDefaultRunLoopSettings();
+
+        StringBuilder info = new StringBuilder("Pipeline:");
+        for (int s = 0; s < stages.length; s++) {
+            info.append(s > 0 ? " ->" : "").append(" [").append(stages[s]).append(" x")
+                    .append(workerCounts[s]).append("]");
+        }
+        Sys.printlnOut(info.toString());
+        Sys.printlnOut("Queue capacity: " + queueCapacity);
+
+        BenchmarkIndicators indicators = super.run();
+
+        for (int s = 0; s < stages.length; s++) {
+            Sys.printlnOut("");
+            Sys.printlnOut("Stage " + (s + 1) + ": " + stages[s]);
+            getStat().process(stageRecordings[s], false);
+        }
+
+        return indicators;
+    }
+
+    /**
+     * Creates the recording of each stage and returns the end-to-end recording, the histograms of
+     * which are calculated from the stage recordings after the benchmark.
+     */
+    @Override
+    protected Recording newRecording(int requestCount) {
+        stageRecordings = new Recording[stages.length];
+        for (int s = 0; s < stages.length; s++) {
+            stageRecordings[s] = new Recording(requestCount, workerCounts[s], true);
+        }
+        return new Recording(0, false, new BenchmarkHistograms());
+    }
+
+    /**
+     * Starts the workers of each stage, then generates the requests. Returns when all the requests
+     * are processed by the last stage.
+     */
+    @Override
+    protected long run(String name, int requestCount, Recording recording) {
+        Sys.debug(name + " started");
+
+        Recording[] recordings = recording != null ? stageRecordings : null;
+
+        // queues: the first one has room for all the requests, so the generator is never blocked
+        queues = new RequestQueue[stages.length];
+        producerCounts = new AtomicIntegerArray(stages.length);
+        for (int s = 0; s < stages.length; s++) {
+            int producerCount = s == 0 ? 1 : workerCounts[s - 1];
+            int capacity = s == 0 ? Math.max(1, requestCount) : queueCapacity;
+            queues[s] = producerCount == 1 ? new RingQueue(capacity) : new BoundedQueue(capacity);
+            producerCounts.set(s, producerCount);
+        }
+
+        // start workers
+        int workerCount = 0;
+        for (int count : workerCounts) { workerCount += count; }
+        Thread[] workers = new Thread[workerCount];
+        for (int s = 0, w = 0; s < stages.length; s++) {
+            for (int i = 0; i < workerCounts[s]; i++, w++) {
+                workers[w] = new Thread(new StageWorker(s, recordings),
+                        name + "-stage-" + s + "-worker-" + i);
+                workers[w].start();
+            }
+        }
+
+        // generate requests
+        Load load = getLoad();
+        long arrivalNs, enqueueNs, benchmarkStartedNs;
+        arrivalNs = System.nanoTime();
+        benchmarkStartedNs = System.nanoTime();
+        for (int i = 0; i < requestCount; i++) {
+            // schedule
+            arrivalNs += load.nextRelativeTimeNs();
+            sleepUntilNextRequest(arrivalNs);
+
+            // enqueue
+            enqueueNs = System.nanoTime();
+            if (recordings != null) { recordings[0].setArrival(i, arrivalNs, enqueueNs); }
+            queues[0].offer(i);
+        }
+        producerCounts.decrementAndGet(0);
+
+        // wait for the workers
+        for (Thread worker : workers) {
+            try { worker.join(); }
+            catch (InterruptedException e) { Sys.debug("waiting for workers interrupted"); }
+        }
+
+        if (recordings != null) {
+            for (Recording stageRecording : recordings) { stageRecording.setSize(requestCount); }
+            recordEndToEnd(recording, requestCount);
+        }
+
+        Sys.debug(name + " finished");
+
+        return System.nanoTime() - benchmarkStartedNs;
+    }
+
+    /**
+     * Calculates the end-to-end histograms from the stage recordings (see the class description).
+     */
+    private void recordEndToEnd(Recording recording, int requestCount) {
+        BenchmarkHistograms histograms = recording.getHistograms();
+        Recording first = stageRecordings[0], last = stageRecordings[stages.length - 1];
+
+        long[][] processingTimes = new long[stages.length][requestCount];
+        long processing, dequeue, finish, start;
+        for (int i = 0; i < requestCount; i++) {
+            processing = 0;
+            dequeue = 0;
+            for (int s = 0; s < stages.length; s++) {
+                Recording stageRecording = stageRecordings[s];
+                processingTimes[s][i] = stageRecording.getFinish(i) - stageRecording.getStart(i);
+                processing += processingTimes[s][i];
+                dequeue += stageRecording.getStart(i) - stageRecording.getDequeue(i);
+            }
+            // a virtual start and dequeue, so that the derived timings are the sums
+            finish = last.getFinish(i);
+            start = finish - processing;
+            histograms.add(first.getArrival(i), first.getEnqueue(i), start - dequeue, start,
+                    finish);
+        }
+        recording.setSize(requestCount);
+
+        // calculated end-to-end service times
+        long[] estimatedServices = new CorrectionScheme().estimateTandemServiceTimes(
+                first.getArrivals(), processingTimes, workerCounts);
+        Histogram estimatedService = histograms.getEstimatedService();
+        for (long value : estimatedServices) {
+            estimatedService.record(value);
+        }
+    }
+
+    /**
+     * A worker of a stage: takes requests from the queue of its stage, processes them and passes
+     * them to the next stage until the previous stage is finished and the queue is empty.
+     */
+    private class StageWorker implements Runnable {
+        private final int stage;
+        private final Recording[] recordings;
+
+        /**
+         * Consumes the values returned by the Task of the stage, one per worker in order to avoid
+         * dead code elimination without sharing a cache line between workers.
+         */
+        private final Blackhole blackhole = new Blackhole();
+
+        StageWorker(int stage, Recording[] recordings) {
+            this.stage = stage;
+            this.recordings = recordings;
+        }
+
+        @Override
+        public void run() {
+            Task task = stages[stage];
+            RequestQueue queue = queues[stage];
+            boolean last = stage == stages.length - 1;
+            long dequeueNs, startNs, finishNs, enqueueNs;
+            int request, idleCount = 0;
+            boolean finished;
+
+            while (true) {
+                // the count must be read before polling: if it is 0, all requests are queued
+                finished = producerCounts.get(stage) == 0;
+                // the dequeue time is the cost of the poll (including contention on the queue)
+                dequeueNs = System.nanoTime();
+                request = queue.poll();
+                if (request < 0) {
+                    if (finished) { break; }
+                    if (++idleCount % 128 == 0) { Thread.yield(); } else { Thread.onSpinWait(); }
+                    continue;
+                }
+                idleCount = 0;
+
+                // run & measure
+                startNs = System.nanoTime();
+                task.execute(blackhole);
+                finishNs = System.nanoTime();
+
+                // record stats
+                if (recordings != null) {
+                    recordings[stage].setProcessing(request, dequeueNs, startNs, finishNs);
+                }
+
+                // pass to the next stage, arriving there at the finish of this one
+                if (!last) {
+                    enqueueNs = System.nanoTime();
+                    if (recordings != null) {
+                        recordings[stage + 1].setArrival(request, finishNs, enqueueNs);
+                    }
+                    queues[stage + 1].offer(request);
+                }
+            }
+
+            if (!last) { producerCounts.decrementAndGet(stage + 1); }
+        }
+    }
+
+    public int getStageCount() {
+        return stages.length;
+    }
+
+    /**
+     * Returns the recording of the given stage, available after the benchmark.
+     */
+    public Recording getStageRecording(int stage) {
+        return stageRecordings[stage];
+    }
+
+    public static void main(String[] args) throws Exception{
+        Load load = new co.load.Exponential(500, TimeUnit.MICROSECONDS);
+
+        // parse -> compute -> serialize
+        Task[] stages = { new co.task.Fibonacci(100_000), new co.task.Fibonacci(1_000_000),
+                new co.task.Fibonacci(200_000) };
+        int[] workerCounts = { 1, 2, 1 };
+
+        int requestCount = 10_000;
+        int warmupCount = 1000;
+        int queueCapacity = 64;
+
+        Benchmark benchmark = new Pipeline(load, stages, workerCounts, requestCount, warmupCount,
+                new Stat(), false, queueCapacity);
+
+        // run benchmark
+        benchmark.run();
+    }
+}
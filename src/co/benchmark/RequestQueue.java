@@ -0,0 +1,29 @@
+package co.benchmark;
+
+/**
+ * Represents the request queue between the thread generating the requests and the worker threads
+ * processing them. Requests are represented by their index, the timings of the request are kept
+ * by the Recording.
+ *
+ * FEATURES:
+ *
+ * - Should be safe for a single producer and multiple consumers
+ * - Should not block: poll returns immediately when the queue is empty
+ *
+ * RELATIONS:
+ *
+ * - The RequestQueue is filled by the arrival generator and drained by the workers of a
+ *   WorkerPool benchmark.
+ */
+public interface RequestQueue {
+
+    /**
+     * Puts the given request to the tail of the queue. Called by the single producer thread.
+     */
+    public void offer(int request);
+
+    /**
+     * Takes the request from the head of the queue or returns -1 if the queue is empty.
+     */
+    public int poll();
+}
@@ -0,0 +1,74 @@
+package co.benchmark;
+
+import co.Sys;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, lock-free, allocation-free single-producer multi-consumer queue of request indices
+ * backed by a ring buffer.
+ *
+ * FEATURES:
+ *
+ * - The producer publishes new requests by advancing the tail
+ * - Consumers claim requests by advancing the head with CAS
+ * - If the ring is full, the producer spins until a consumer frees a slot
+ *
+ * The head and tail counters are padded in order to avoid false sharing between the producer and
+ * the consumers.
+ */
+public class RingQueue implements RequestQueue {
+    private final int[] buffer;
+    private final int mask;
+    private final AtomicLong head = new PaddedAtomicLong(), tail = new PaddedAtomicLong();
+
+    /**
+     * Initializes the queue with room for at least the given number of requests. The capacity is
+     * rounded up to the next power of two.
+     */
+    public RingQueue(int capacity) {
+        Sys.assertTrue(capacity > 0 && capacity <= 1 << 30);
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) { size <<= 1; }
+        buffer = new int[size];
+        mask = size - 1;
+    }
+
+    @Override
+    public void offer(int request) {
+        long t = tail.get();
+        while (t - head.get() >= buffer.length) {
+            Thread.onSpinWait();
+        }
+        buffer[(int) t & mask] = request;
+        tail.set(t + 1);
+    }
+
+    @Override
+    public int poll() {
+        long h;
+        int request;
+        do {
+            h = head.get();
+            if (h >= tail.get()) { return -1; }
+            request = buffer[(int) h & mask];
+        } while (!head.compareAndSet(h, h + 1));
+        return request;
+    }
+
+    @Override
+    public String toString() {
+        return "lock-free ring queue of " + buffer.length;
+    }
+
+    /**
+     * An AtomicLong padded to its own cache line.
+     */
+    @SuppressWarnings("unused")
+    private static class PaddedAtomicLong extends AtomicLong {
+        private static final long serialVersionUID = 1L;
+
+        long p1, p2, p3, p4, p5, p6, p7;
+    }
+}
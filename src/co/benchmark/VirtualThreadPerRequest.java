@@ -0,0 +1,178 @@
+package co.benchmark;
+
+import co.Benchmark;
+import co.Blackhole;
+import co.Load;
+import co.Stat;
+import co.Sys;
+import co.Task;
+import co.stat.BenchmarkIndicators;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents an open-loop benchmark where every request is executed by its own virtual thread
+ * (the Loom model, Java 21+), or by its own platform thread on older JVMs.
+ *
+ * PROCESS: The thread calling run schedules the requests according to the given Load distribution
+ * and spawns a new virtual thread for every arrival which executes the given Task. There is no
+ * artificial cap on the number of requests in flight.
+ *
+ * FEATURES:
+ *
+ * - Measures arrival, submit (enqueue), mount (dequeue), start and finish time of every request
+ * - Reports latency and achieved throughput through the same Stat pipeline as the other benchmarks
+ * - Mainly useful for I/O bound tasks (see the Sleep task), compare it to WorkerPool with the main
+ *   method
+ *
+ * NOTES:
+ *
+ * - The Task must be thread-safe
+ * - Virtual threads are looked up reflectively, so the harness still compiles for Java 17. On
+ *   older JVMs a new platform thread executes each request instead (idle threads exit at once),
+ *   the executor used is printed by run
+ * - Besides the task, each request allocates its Runnable on the scheduling thread (a few dozen
+ *   bytes) and its Blackhole (~300 bytes, padded) on its own thread before the start time, as the
+ *   threads are not reused
+ * - The calculated service time assumes an unbounded number of servers, as there is no cap on the
+ *   requests in flight
+ * - The benchmark runs its own loop, hence the duration, the interval log, the operations per
+ *   invocation and Profile loads are not supported
+ */
+public class VirtualThreadPerRequest extends Benchmark {
+
+    /**
+     * Initializes the benchmark with the given arguments.
+     */
+    public VirtualThreadPerRequest(Load load, Task task, int requestCount, int warmupCount,
+                                   Stat stat, boolean exportRawStat) {
+        super(load, task, requestCount, warmupCount, stat, exportRawStat);
+    }
+
+    @Override
+    public BenchmarkIndicators run() {
+        assertDefaultRunLoopSettings();
+
+        Sys.printlnOut(hasVirtualThreads() ? "Virtual thread per request" :
+                "Platform thread per request (virtual threads require Java 21+)");
+        return super.run();
+    }
+
+    @Override
+    protected Recording newRecording(int requestCount) {
+        return new Recording(requestCount, Integer.MAX_VALUE, true);
+    }
+
+    /**
+     * Generates the requests and spawns a thread for each. Returns when all the requests
+     * are processed.
+     */
+    @Override
+    protected long run(String name, int requestCount, Recording recording) {
+        Sys.debug(name + " started");
+
+        ExecutorService executor = newExecutor();
+        Load load = getLoad();
+        Task task = getTask();
+        long arrivalNs, enqueueNs, benchmarkStartedNs;
+        arrivalNs = System.nanoTime();
+        benchmarkStartedNs = System.nanoTime();
+        for (int i = 0; i < requestCount; i++) {
+            // schedule
+            arrivalNs += load.nextRelativeTimeNs();
+            sleepUntilNextRequest(arrivalNs);
+
+            // spawn
+            enqueueNs = System.nanoTime();
+            if (recording != null) { recording.setArrival(i, arrivalNs, enqueueNs); }
+            final int request = i;
+            executor.execute(() -> {
+                // a sink per request (allocated outside the measured window), as the threads are
+                // not reused
+                Blackhole blackhole = new Blackhole();
+                long dequeueNs = System.nanoTime();
+                long startNs = System.nanoTime();
+                task.execute(blackhole);
+                long finishNs = System.nanoTime();
+                if (recording != null) {
+                    recording.setProcessing(request, dequeueNs, startNs, finishNs);
+                }
+            });
+        }
+
+        // wait for the requests in flight
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                Sys.debug("waiting for requests in flight");
+            }
+        }
+        catch (InterruptedException e) { Sys.debug("waiting for requests interrupted"); }
+        if (recording != null) { recording.setSize(requestCount); }
+
+        Sys.debug(name + " finished");
+
+        return System.nanoTime() - benchmarkStartedNs;
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task, or a new platform thread
+     * if virtual threads are not available.
+     */
+    protected ExecutorService newExecutor() {
+        if (!hasVirtualThreads()) {
+            return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 0, TimeUnit.NANOSECONDS,
+                    new SynchronousQueue<>());
+        }
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns true if the JVM supports virtual threads (Java 21+).
+     */
+    public static boolean hasVirtualThreads() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        }
+        catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Compares the virtual thread per request model to a platform thread pool on the same I/O bound
+     * workload.
+     */
+    public static void main(String[] args) throws Exception{
+        Task task = new co.task.Sleep(10, TimeUnit.MILLISECONDS);
+
+        // 100k requests per second, ie. ~1000 requests in flight
+        int requestCount = 100_000;
+        int warmupCount = 10_000;
+        int workerCount = 200;
+
+        boolean exportRawStat = false;
+
+        Sys.printlnOut(hasVirtualThreads() ? "=== Virtual threads" : "=== Platform threads");
+        new VirtualThreadPerRequest(new co.load.Exponential(10, TimeUnit.MICROSECONDS), task,
+                requestCount, warmupCount, new Stat(), exportRawStat).run();
+
+        System.gc();
+        Sys.printlnOut("");
+
+        Sys.printlnOut("=== Platform thread pool");
+        new WorkerPool(new co.load.Exponential(10, TimeUnit.MICROSECONDS), task,
+                requestCount, warmupCount, new Stat(), exportRawStat, workerCount).run();
+    }
+}
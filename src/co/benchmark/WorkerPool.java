@@ -0,0 +1,191 @@
+package co.benchmark;
+
+import co.Benchmark;
+import co.Blackhole;
+import co.Load;
+import co.Stat;
+import co.Sys;
+import co.Task;
+import co.stat.BenchmarkIndicators;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents an open-loop benchmark of a service with a request queue and a pool of workers.
+ *
+ * PROCESS: A dedicated arrival generator thread (the one calling run) schedules the requests
+ * according to the given Load distribution and puts them into the request queue, independently of
+ * how the workers keep up. Each of the N worker threads takes the next request from the queue and
+ * executes the given Task.
+ *
+ * FEATURES:
+ *
+ * - Measures (instead of infers) arrival, enqueue, dequeue, start and finish time of every request
+ * - Benchmarks multi-core throughput and true queueing latency
+ * - Pluggable RequestQueue (the default is a lock-free ring buffer)
+ *
+ * NOTES:
+ *
+ * - The Task must be thread-safe
+ * - Idle workers spin on the queue, so for accurate results the machine should have at least
+ *   workerCount + 1 cores
+ * - The benchmark runs its own loop, hence the duration, the interval log, the operations per
+ *   invocation and Profile loads are not supported
+ */
+public class WorkerPool extends Benchmark {
+    private final int workerCount;
+    private final RequestQueue queue;
+
+    // set by the arrival generator when all requests of the current run are in the queue
+    private volatile boolean generated;
+
+    /**
+     * Initializes the benchmark with the given arguments and a lock-free ring queue.
+     */
+    public WorkerPool(Load load, Task task, int requestCount, int warmupCount, Stat stat,
+                      boolean exportRawStat, int workerCount) {
+        this(load, task, requestCount, warmupCount, stat, exportRawStat, workerCount,
+                new RingQueue(Math.max(1, Math.max(requestCount, warmupCount))));
+    }
+
+    /**
+     * Initializes the benchmark with the given arguments.
+     */
+    public WorkerPool(Load load, Task task, int requestCount, int warmupCount, Stat stat,
+                      boolean exportRawStat, int workerCount, RequestQueue queue) {
+        super(load, task, requestCount, warmupCount, stat, exportRawStat);
+        Sys.assertTrue(workerCount > 0 && queue != null);
+
+        this.workerCount = workerCount;
+        this.queue = queue;
+    }
+
+    @Override
+    public BenchmarkIndicators run() {
+        assertDefaultRunLoopSettings();
+
+        Sys.printlnOut("Workers: " + workerCount + " (" + queue + ")");
+        return super.run();
+    }
+
+    @Override
+    protected Recording newRecording(int requestCount) {
+        return new Recording(requestCount, workerCount, true);
+    }
+
+    /**
+     * Starts the workers, then generates the requests. Returns when all the requests are
+     * processed.
+     */
+    @Override
+    protected long run(String name, int requestCount, Recording recording) {
+        Sys.debug(name + " started");
+
+        // start workers
+        generated = false;
+        Thread[] workers = new Thread[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Thread(new Worker(recording), name + "-worker-" + i);
+            workers[i].start();
+        }
+
+        // generate requests
+        Load load = getLoad();
+        long arrivalNs, enqueueNs, benchmarkStartedNs;
+        arrivalNs = System.nanoTime();
+        benchmarkStartedNs = System.nanoTime();
+        for (int i = 0; i < requestCount; i++) {
+            // schedule
+            arrivalNs += load.nextRelativeTimeNs();
+            sleepUntilNextRequest(arrivalNs);
+
+            // enqueue
+            enqueueNs = System.nanoTime();
+            if (recording != null) { recording.setArrival(i, arrivalNs, enqueueNs); }
+            queue.offer(i);
+        }
+        generated = true;
+
+        // wait for the workers
+        for (Thread worker : workers) {
+            try { worker.join(); }
+            catch (InterruptedException e) { Sys.debug("waiting for workers interrupted"); }
+        }
+        if (recording != null) { recording.setSize(requestCount); }
+
+        Sys.debug(name + " finished");
+
+        return System.nanoTime() - benchmarkStartedNs;
+    }
+
+    /**
+     * A worker that takes requests from the queue and processes them until all the requests are
+     * generated and the queue is empty.
+     */
+    private class Worker implements Runnable {
+        private final Recording recording;
+
+        /**
+         * Consumes the values returned by the benchmarked method, one per worker in order to avoid
+         * dead code elimination without sharing a cache line between workers.
+         */
+        private final Blackhole blackhole = new Blackhole();
+
+        Worker(Recording recording) {
+            this.recording = recording;
+        }
+
+        @Override
+        public void run() {
+            Task task = getTask();
+            long dequeueNs, startNs, finishNs;
+            int request, idleCount = 0;
+            boolean finished;
+
+            while (true) {
+                // the flag must be read before polling: if it is set, all requests are queued
+                finished = generated;
+                // the dequeue time is the cost of the poll (including contention on the queue)
+                dequeueNs = System.nanoTime();
+                request = queue.poll();
+                if (request < 0) {
+                    if (finished) { break; }
+                    if (++idleCount % 128 == 0) { Thread.yield(); } else { Thread.onSpinWait(); }
+                    continue;
+                }
+                idleCount = 0;
+
+                // run & measure
+                startNs = System.nanoTime();
+                task.execute(blackhole);
+                finishNs = System.nanoTime();
+
+                // record stats
+                if (recording != null) {
+                    recording.setProcessing(request, dequeueNs, startNs, finishNs);
+                }
+            }
+        }
+    }
+
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    public static void main(String[] args) throws Exception{
+        Load load = new co.load.Exponential(250, TimeUnit.MICROSECONDS);
+        Task task = new co.task.Fibonacci(1_000_000);
+
+        int requestCount = 10_000;
+        int warmupCount = 1000;
+        int workerCount = 4;
+
+        boolean exportRawStat = true;
+
+        Benchmark benchmark = new WorkerPool(load, task, requestCount, warmupCount,
+                new Stat(), exportRawStat, workerCount);
+
+        // run benchmark
+        benchmark.run();
+    }
+}
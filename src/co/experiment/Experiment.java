@@ -2,20 +2,40 @@ package co.experiment;
 
 import co.*;
 import co.stat.BenchmarkIndicators;
+import co.stat.Bootstrap;
+import co.stat.Histogram;
 
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Represents a Load experiment, when the same Task is benchmarked under different Loads.
  *
- * TODO: each round should be executed in a separate process
+ * Each round (ie. Load) is benchmarked in this JVM by default. If forking is configured, each round
+ * is benchmarked in the given number of child JVMs (see ForkedRound) instead, one after the other,
+ * and the percentiles are aggregated across the forks (mean and standard deviation). Hence the
+ * experiment is serialized: subclasses should keep their Load and Task transient and create them
+ * lazily.
  */
-public abstract class Experiment {
+public abstract class Experiment implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     private long minTime, maxTime, deltaTime;
     private TimeUnit timeUnit;
 
     private int requestCount, warmupCount;
 
+    // estimates the confidence intervals of the percentiles, null if they are not estimated
+    private transient Bootstrap bootstrap;
+
+    // number of child JVMs per round (0: run in this JVM) and their JVM arguments
+    private int forkCount;
+    private ArrayList<String> jvmArgs = new ArrayList<>();
+
     /**
      * Returns the Task to be benchmarked.
      */
@@ -74,55 +94,236 @@ public abstract class Experiment {
         this.warmupCount = warmupCount;
     }
 
+    public Bootstrap getBootstrap() {
+        return bootstrap;
+    }
+
+    /**
+     * Sets the bootstrap estimating the confidence intervals of the percentiles of each round,
+     * null (default) disables the estimation.
+     */
+    public void setBootstrap(Bootstrap bootstrap) {
+        this.bootstrap = bootstrap;
+    }
+
+    public int getForkCount() {
+        return forkCount;
+    }
+
+    /**
+     * Sets the number of child JVMs each round is benchmarked in, 0 (default) benchmarks the rounds
+     * in this JVM.
+     */
+    public void setForkCount(int forkCount) {
+        Sys.assertTrue(forkCount >= 0);
+
+        this.forkCount = forkCount;
+    }
+
+    public List<String> getJvmArgs() {
+        return jvmArgs;
+    }
+
+    /**
+     * Sets the JVM arguments of the child JVMs, eg. "-Xmx1g".
+     */
+    public void setJvmArgs(String... jvmArgs) {
+        this.jvmArgs = new ArrayList<>(Arrays.asList(jvmArgs));
+    }
+
     /**
      * Runs the experiment.
      */
     public void run() {
         // init load related stuff
-        Load load;
         long time = getMinTime();
         long deltaTime = getDeltaTime();
         long maxTime = getMaxTime();
         TimeUnit timeUnit = getTimeUnit();
 
-        // get task
-        Task task = getTask();
-
-        // init benchmark counts
-        int requestCount = getRequestCount(), warmupCount = getWarmupCount();
-
         // init stat
         Stat benchmarkStat = new Stat();
-        BenchmarkIndicators benchmarkIndicators;
+        benchmarkStat.setBootstrap(getBootstrap());
         ExperimentRecording recording = new ExperimentRecording();
-        boolean exportRawStat = false;
 
         // main loop
         while (time <= maxTime) {
+            // run the benchmark under the given load and record the stats
+            recordRound(time, benchmarkStat, recording);
+
+            // decrease the load by increasing the time between consecutive requests
+            time += deltaTime;
+        }
+
+        // stats
+
+        // TODO handle Stat
+        recording.printOut();
+    }
+
+    /**
+     * Searches the saturation point: the shortest time between consecutive requests (ie. the
+     * highest arrival rate) within [minTime, maxTime] where the 99% percentile of the service time
+     * is still within the given limit. Instead of sweeping the whole range, the search first
+     * brackets the knee of the latency curve, then bisects the bracket:
+     *
+     * - bracket: starting from maxTime (the lightest load) the time is halved (the arrival rate is
+     *   doubled) until the limit is exceeded or minTime is reached
+     * - bisect: the bracket between the last failing and the first passing time is halved until it
+     *   is not wider than deltaTime
+     *
+     * The latency is assumed to decrease with the time, noisy rounds near the knee might shift the
+     * result by a few deltaTime. Returns the saturation point (time is 0 if even maxTime exceeds
+     * the limit) together with the number of rounds it took.
+     */
+    public Saturation search(long serviceLimit, TimeUnit serviceLimitUnit) {
+        long limitNs = TimeUnit.NANOSECONDS.convert(serviceLimit, serviceLimitUnit);
+        long minTime = getMinTime(), maxTime = getMaxTime();
+        long resolution = Math.max(1, getDeltaTime());
+        Sys.assertTrue(minTime > 0 && minTime <= maxTime);
+
+        Stat benchmarkStat = new Stat();
+        benchmarkStat.setBootstrap(getBootstrap());
+        ExperimentRecording recording = new ExperimentRecording();
+
+        // the lightest load
+        long passing = maxTime, passingPercentile = measure(maxTime, benchmarkStat, recording);
+        if (passingPercentile > limitNs) {
+            return saturated(0, 0, limitNs, recording);
+        }
+
+        // bracket
+        long failing = 0, time, percentile;
+        while (failing == 0 && passing > minTime) {
+            time = Math.max(minTime, passing / 2);
+            percentile = measure(time, benchmarkStat, recording);
+            if (percentile <= limitNs) {
+                passing = time;
+                passingPercentile = percentile;
+            }
+            else {
+                failing = time;
+            }
+        }
+
+        // bisect
+        while (failing > 0 && passing - failing > resolution) {
+            time = failing + (passing - failing) / 2;
+            percentile = measure(time, benchmarkStat, recording);
+            if (percentile <= limitNs) {
+                passing = time;
+                passingPercentile = percentile;
+            }
+            else {
+                failing = time;
+            }
+        }
+
+        return saturated(passing, passingPercentile, limitNs, recording);
+    }
+
+    private Saturation saturated(long time, long percentileNs, long limitNs,
+                                 ExperimentRecording recording) {
+        recording.printOut();
+        Saturation saturation = new Saturation(time, getTimeUnit(), percentileNs, limitNs,
+                recording.size());
+        Sys.printlnOut("");
+        Sys.printlnOut(saturation.toString());
+        return saturation;
+    }
+
+    /**
+     * Benchmarks and records a single round, returns the 99% percentile of the service time.
+     */
+    private long measure(long time, Stat stat, ExperimentRecording recording) {
+        recordRound(time, stat, recording);
+        return recording.getServicePercentile(recording.size() - 1);
+    }
+
+    /**
+     * Benchmarks a single round in this JVM or in child JVMs (see setForkCount) and records the
+     * stats.
+     */
+    private void recordRound(long time, Stat stat, ExperimentRecording recording) {
+        if (forkCount > 0) {
+            // run the benchmark under the given load in child JVMs
+            runForked(time, recording);
+        }
+        else {
             // run the benchmark under the given load
-            benchmarkIndicators = new Benchmark(
-                    getLoad(time, timeUnit), task, requestCount, warmupCount, benchmarkStat,
-                    exportRawStat).run();
+            BenchmarkIndicators benchmarkIndicators = runRound(time, stat);
 
             // record the current benchmark stats
             recording.add(
-                    TimeUnit.NANOSECONDS.convert(time, timeUnit),
+                    TimeUnit.NANOSECONDS.convert(time, getTimeUnit()),
                     benchmarkIndicators.getService().getPercentile(),
                     benchmarkIndicators.getProcessing().getPercentile(),
-                    benchmarkIndicators.getEstimatedService().getPercentile());
+                    benchmarkIndicators.getEstimatedService().getPercentile(),
+                    benchmarkIndicators.getService().getPercentileInterval());
+        }
 
-            // decrease the load by increasing the time between consecutive requests
-            time += deltaTime;
+        // run gc
+        System.gc();
+
+        Sys.printlnOut("");
+    }
 
-            // run gc
-            System.gc();
+    /**
+     * Benchmarks a single round, ie. the Task under the Load of the given time, and returns the
+     * indicators.
+     */
+    protected BenchmarkIndicators runRound(long time, Stat stat) {
+        boolean exportRawStat = false;
+        return new Benchmark(getLoad(time, getTimeUnit()), getTask(), getRequestCount(),
+                getWarmupCount(), stat, exportRawStat).run();
+    }
 
-            Sys.printlnOut("");
+    /**
+     * Benchmarks a single round in forkCount child JVMs and records the mean and standard deviation
+     * of the percentiles across the forks.
+     */
+    private void runForked(long time, ExperimentRecording recording) {
+        double[] services = new double[forkCount], processings = new double[forkCount],
+                estimatedServices = new double[forkCount];
+        for (int f = 0; f < forkCount; f++) {
+            Sys.printlnOut("Fork " + (f + 1) + "/" + forkCount);
+            ForkedRound.Result result;
+            try {
+                result = ForkedRound.fork(this, time, jvmArgs);
+            }
+            catch (IOException | InterruptedException e) {
+                throw new IllegalStateException("forked round failed: " + e.getMessage(), e);
+            }
+            services[f] = percentileOf(result.getService());
+            processings[f] = percentileOf(result.getProcessing());
+            estimatedServices[f] = percentileOf(result.getEstimatedService());
         }
 
-        // stats
+        recording.add(TimeUnit.NANOSECONDS.convert(time, getTimeUnit()),
+                Math.round(mean(services)), Math.round(mean(processings)),
+                Math.round(mean(estimatedServices)),
+                standardDeviation(services), standardDeviation(processings),
+                standardDeviation(estimatedServices));
+    }
 
-        // TODO handle Stat
-        recording.printOut();
+    private static double percentileOf(Histogram histogram) {
+        return histogram.getValueAtPercentile(99);
+    }
+
+    private static double mean(double[] values) {
+        double sum = 0;
+        for (double value : values) { sum += value; }
+        return sum / values.length;
+    }
+
+    /**
+     * Returns the sample standard deviation of the given values (0 for a single value).
+     */
+    private static double standardDeviation(double[] values) {
+        if (values.length < 2) { return 0; }
+
+        double mean = mean(values), sum = 0;
+        for (double value : values) { sum += (value - mean) * (value - mean); }
+        return Math.sqrt(sum / (values.length - 1));
     }
 }
@@ -2,6 +2,7 @@ package co.experiment;
 
 
 import co.Sys;
+import co.stat.ConfidenceInterval;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -22,6 +23,13 @@ public class ExperimentRecording {
 
     private List<Long> times, servicePercentiles, processingPercentiles, estimatedServicePercentiles;
 
+    // confidence intervals of the service percentiles, null elements if not estimated
+    private List<ConfidenceInterval> serviceIntervals;
+
+    // standard deviations of the percentiles across forks (see Experiment.setForkCount), null
+    // elements if not forked
+    private List<Double> serviceDeviations, processingDeviations, estimatedServiceDeviations;
+
     /**
      * Initialize this recording.
      */
@@ -30,6 +38,10 @@ public class ExperimentRecording {
         servicePercentiles = new ArrayList<>();
         processingPercentiles = new ArrayList<>();
         estimatedServicePercentiles = new ArrayList<>();
+        serviceIntervals = new ArrayList<>();
+        serviceDeviations = new ArrayList<>();
+        processingDeviations = new ArrayList<>();
+        estimatedServiceDeviations = new ArrayList<>();
     }
 
     /**
@@ -38,27 +50,103 @@ public class ExperimentRecording {
      */
     public void add(long timeNs, long servicePercentileNs, long processingPercentileNs,
                     long estimatedServicePercentileNs) {
+        add(timeNs, servicePercentileNs, processingPercentileNs, estimatedServicePercentileNs,
+                null);
+    }
+
+    /**
+     * Record the given times and the confidence interval of the service percentile (null if not
+     * estimated).
+     */
+    public void add(long timeNs, long servicePercentileNs, long processingPercentileNs,
+                    long estimatedServicePercentileNs, ConfidenceInterval serviceInterval) {
+        add(timeNs, servicePercentileNs, processingPercentileNs, estimatedServicePercentileNs,
+                serviceInterval, null, null, null);
+    }
+
+    /**
+     * Record the given times as the mean percentiles across forks together with their standard
+     * deviations.
+     */
+    public void add(long timeNs, long servicePercentileNs, long processingPercentileNs,
+                    long estimatedServicePercentileNs, double serviceDeviationNs,
+                    double processingDeviationNs, double estimatedServiceDeviationNs) {
+        add(timeNs, servicePercentileNs, processingPercentileNs, estimatedServicePercentileNs,
+                null, serviceDeviationNs, processingDeviationNs, estimatedServiceDeviationNs);
+    }
+
+    private void add(long timeNs, long servicePercentileNs, long processingPercentileNs,
+                     long estimatedServicePercentileNs, ConfidenceInterval serviceInterval,
+                     Double serviceDeviationNs, Double processingDeviationNs,
+                     Double estimatedServiceDeviationNs) {
+        serviceIntervals.add(serviceInterval);
+        serviceDeviations.add(serviceDeviationNs);
+        processingDeviations.add(processingDeviationNs);
+        estimatedServiceDeviations.add(estimatedServiceDeviationNs);
         times.add(timeNs);
         servicePercentiles.add(servicePercentileNs);
         processingPercentiles.add(processingPercentileNs);
         estimatedServicePercentiles.add(estimatedServicePercentileNs);
     }
 
+    /**
+     * Returns the number of recorded rounds.
+     */
+    public int size() {
+        return times.size();
+    }
+
+    /**
+     * Returns the service percentile of the given round.
+     */
+    public long getServicePercentile(int round) {
+        return servicePercentiles.get(round);
+    }
+
     public void printOut() {
+        boolean forked = !serviceDeviations.isEmpty() && serviceDeviations.get(0) != null;
+
         // header
-        Sys.printlnOut("99% percentiles in ms");
-        Sys.printlnOut(String.format("%14s;%14s;%14s;%14s",
-                "load", "service", "processing", "est. service"));
+        Sys.printlnOut(forked ? "99% percentiles in ms (mean and standard deviation across forks)" :
+                "99% percentiles in ms");
+        if (forked) {
+            Sys.printlnOut(String.format("%14s;%14s;%14s;%14s;%14s;%14s;%14s",
+                    "load", "service", "service sd", "processing", "processing sd",
+                    "est. service", "est. serv. sd"));
+        }
+        else {
+            Sys.printlnOut(String.format("%14s;%14s;%14s;%14s;%14s;%14s",
+                    "load", "service", "processing", "est. service", "service lower",
+                    "service upper"));
+        }
 
         // body
         int size = servicePercentiles.size();
         int MILLION = 1_000_000;
+        ConfidenceInterval serviceInterval;
         for (int i = 0; i<size; i++) {
-            Sys.printlnOut(String.format("%14f;%14f;%14f;%14f",
+            if (forked) {
+                Sys.printlnOut(String.format("%14f;%14f;%14f;%14f;%14f;%14f;%14f",
+                        (double) times.get(i) / MILLION,
+                        (double) servicePercentiles.get(i) / MILLION,
+                        serviceDeviations.get(i) / MILLION,
+                        (double) processingPercentiles.get(i) / MILLION,
+                        processingDeviations.get(i) / MILLION,
+                        (double) estimatedServicePercentiles.get(i) / MILLION,
+                        estimatedServiceDeviations.get(i) / MILLION));
+                continue;
+            }
+
+            serviceInterval = serviceIntervals.get(i);
+            Sys.printlnOut(String.format("%14f;%14f;%14f;%14f;%14s;%14s",
                     (double) times.get(i) / MILLION,
                     (double) servicePercentiles.get(i) / MILLION,
                     (double) processingPercentiles.get(i) / MILLION,
-                    (double) estimatedServicePercentiles.get(i) / MILLION));
+                    (double) estimatedServicePercentiles.get(i) / MILLION,
+                    serviceInterval != null ?
+                            String.format("%f", serviceInterval.getLower() / MILLION) : "",
+                    serviceInterval != null ?
+                            String.format("%f", serviceInterval.getUpper() / MILLION) : ""));
         }
     }
 
@@ -0,0 +1,126 @@
+package co.experiment;
+
+import co.Stat;
+import co.stat.BenchmarkIndicators;
+import co.stat.Histogram;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs a single round of an Experiment in a child JVM, so JIT profiles, heap state and GC history
+ * of a round do not affect the other ones.
+ *
+ * PROCESS: The parent writes the serialized Experiment and the time of the round to the standard
+ * input of the child. The child runs the round and writes the histograms of the service,
+ * processing and calculated service times back to its standard output in the compact binary form
+ * of Histogram. Anything the child prints goes to its standard error, which is inherited by the
+ * parent.
+ *
+ * RELATIONS:
+ *
+ * - Launched by Experiment when forking is configured (see Experiment.setForkCount)
+ */
+public class ForkedRound {
+    private static final int MAGIC = 0x434F5244;
+
+    /**
+     * The histograms of a round, as streamed back by the child.
+     */
+    public static class Result {
+        private final Histogram service, processing, estimatedService;
+
+        Result(Histogram service, Histogram processing, Histogram estimatedService) {
+            this.service = service;
+            this.processing = processing;
+            this.estimatedService = estimatedService;
+        }
+
+        public Histogram getService() {
+            return service;
+        }
+
+        public Histogram getProcessing() {
+            return processing;
+        }
+
+        public Histogram getEstimatedService() {
+            return estimatedService;
+        }
+    }
+
+    /**
+     * Runs the round of the given experiment at the given time (in the time unit of the experiment)
+     * in a child JVM started with the given JVM arguments, and returns its histograms.
+     */
+    public static Result fork(Experiment experiment, long time, List<String> jvmArgs)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator
+                + "java");
+        command.addAll(jvmArgs);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ForkedRound.class.getName());
+
+        Process process = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+
+        try (ObjectOutputStream input = new ObjectOutputStream(process.getOutputStream())) {
+            input.writeObject(experiment);
+            input.writeLong(time);
+        }
+
+        Result result;
+        try (DataInputStream output = new DataInputStream(process.getInputStream())) {
+            if (output.readInt() != MAGIC) {
+                throw new IOException("unexpected output of forked round");
+            }
+            result = new Result(Histogram.read(output), Histogram.read(output),
+                    Histogram.read(output));
+        }
+
+        int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            throw new IOException("forked round exited with " + exitCode);
+        }
+        return result;
+    }
+
+    /**
+     * The entry point of the child JVM.
+     */
+    public static void main(String[] args) throws Exception {
+        // keep the standard output for the histograms, print anything else to standard error
+        OutputStream stdout = new FileOutputStream(FileDescriptor.out);
+        System.setOut(new PrintStream(new FileOutputStream(FileDescriptor.err), true));
+
+        Experiment experiment;
+        long time;
+        try (ObjectInputStream input = new ObjectInputStream(System.in)) {
+            experiment = (Experiment) input.readObject();
+            time = input.readLong();
+        }
+
+        BenchmarkIndicators indicators = experiment.runRound(time, new Stat());
+
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stdout))) {
+            output.writeInt(MAGIC);
+            indicators.getService().getHistogram().write(output);
+            indicators.getProcessing().getHistogram().write(output);
+            indicators.getEstimatedService().getHistogram().write(output);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package co.experiment;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Struct that holds the saturation point found by Experiment.search: the shortest time between
+ * consecutive requests (and the corresponding arrival rate) where the 99% percentile of the service
+ * time is within the limit, and the number of rounds the search took.
+ */
+public class Saturation {
+    private long time;
+    private TimeUnit timeUnit;
+    private long servicePercentileNs, serviceLimitNs;
+    private int roundCount;
+
+    public Saturation(long time, TimeUnit timeUnit, long servicePercentileNs, long serviceLimitNs,
+                      int roundCount) {
+        this.time = time;
+        this.timeUnit = timeUnit;
+        this.servicePercentileNs = servicePercentileNs;
+        this.serviceLimitNs = serviceLimitNs;
+        this.roundCount = roundCount;
+    }
+
+    /**
+     * Returns true if the limit is met at all, ie. even under the lightest load.
+     */
+    public boolean isFound() {
+        return time > 0;
+    }
+
+    /**
+     * Returns the time between consecutive requests at the saturation point, in the time unit of
+     * the experiment.
+     */
+    public long getTime() {
+        return time;
+    }
+
+    public TimeUnit getTimeUnit() {
+        return timeUnit;
+    }
+
+    /**
+     * Returns the arrival rate at the saturation point in requests per second.
+     */
+    public double getThroughput() {
+        return time > 0 ? 1_000_000_000d / TimeUnit.NANOSECONDS.convert(time, timeUnit) : 0;
+    }
+
+    public long getServicePercentileNs() {
+        return servicePercentileNs;
+    }
+
+    public long getServiceLimitNs() {
+        return serviceLimitNs;
+    }
+
+    public int getRoundCount() {
+        return roundCount;
+    }
+
+    @Override
+    public String toString() {
+        int MILLION = 1_000_000;
+        if (!isFound()) {
+            return String.format("Saturation: 99%% service time exceeds %f ms even under the " +
+                    "lightest load (%d rounds)", (double) serviceLimitNs / MILLION, roundCount);
+        }
+        return String.format("Saturation: %f requests/s (time diff: %d %s), 99%% service time: " +
+                        "%f ms within %f ms (%d rounds)",
+                getThroughput(), time, timeUnit, (double) servicePercentileNs / MILLION,
+                (double) serviceLimitNs / MILLION, roundCount);
+    }
+}
@@ -11,12 +11,15 @@ import java.util.concurrent.TimeUnit;
  * Experiment with Steady load and Fibonacci Task.
  */
 public class SteadyFibonacci extends Experiment {
-    private Steady load;
+    private static final long serialVersionUID = 1L;
+
+    // created lazily, hence transient (see Experiment)
+    private transient Steady load;
     private long minTime, maxTime, deltaTime;
     private TimeUnit timeUnit;
 
     private int fibonacciIndex;
-    private Task task;
+    private transient Task task;
 
     private int requestCount, warmupCount;
 
@@ -63,7 +66,13 @@ public class SteadyFibonacci extends Experiment {
         experiment.setWarmupCount(1000);
         experiment.setRequestCount(10000);
 
+        // run each round in 3 child JVMs
+        //experiment.setForkCount(3);
+
         // run experiment
         experiment.run();
+
+        // or search the highest arrival rate where the 99% service time is within 1 ms
+        //experiment.search(1, TimeUnit.MILLISECONDS);
     }
 }
@@ -2,21 +2,27 @@ package co.load;
 
 import co.Load;
 
-import java.util.Random;
+import java.util.SplittableRandom;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Represents the load of a Poisson process[1]. That is the time between consecutive requests follow
  * an exponential distribution[2].
  *
+ * The random numbers are generated by a SplittableRandom[3], which is cheaper than Random (no
+ * atomic update) and can be seeded, so two runs with the same seed see identical arrivals (eg. for
+ * A/B comparison). Hence the load is not thread-safe, it should be called by the scheduling thread
+ * only (as the benchmarks do). See Precomputed to move the generation off the scheduling thread.
+ *
  * References:
  *
  * - [1] <http://en.wikipedia.org/wiki/Poisson_process>
  * - [2] <http://en.wikipedia.org/wiki/Exponential_distribution>
+ * - [3] <https://docs.oracle.com/javase/8/docs/api/java/util/SplittableRandom.html>
  */
 public class Exponential implements Load {
     private final long meanTimeNs;
-    private Random random;
+    private final SplittableRandom random;
 
     /**
      * Initializes the load generator with the given mean time and time unit.
@@ -30,7 +36,16 @@ public class Exponential implements Load {
      */
     public Exponential(long meanTime, TimeUnit unit) {
         meanTimeNs = TimeUnit.NANOSECONDS.convert(meanTime, unit);
-        random = new Random();
+        random = new SplittableRandom();
+    }
+
+    /**
+     * Initializes the load generator with the given mean time, time unit and seed. Load generators
+     * with the same seed produce the same arrivals.
+     */
+    public Exponential(long meanTime, TimeUnit unit, long seed) {
+        meanTimeNs = TimeUnit.NANOSECONDS.convert(meanTime, unit);
+        random = new SplittableRandom(seed);
     }
 
     /**
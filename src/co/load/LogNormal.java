@@ -0,0 +1,94 @@
+package co.load;
+
+import co.Load;
+import co.Sys;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents a load with heavy-tailed times between consecutive requests, following a log-normal
+ * distribution[1], that is the logarithm of the time follows a normal distribution with the given
+ * standard deviation (sigma). The greater the sigma, the burstier the load.
+ *
+ * NOTES:
+ *
+ * - Not thread-safe, see Exponential
+ *
+ * References:
+ *
+ * - [1] <http://en.wikipedia.org/wiki/Log-normal_distribution>
+ * - [2] <http://en.wikipedia.org/wiki/Marsaglia_polar_method>
+ */
+public class LogNormal implements Load {
+    private final long meanTimeNs;
+    private final double sigma, mu;
+    private final SplittableRandom random;
+
+    // the second normal sample of the polar method, NaN if there is none
+    private double spare = Double.NaN;
+
+    /**
+     * Initializes the load generator with the given mean time between consecutive requests, sigma
+     * and time unit. The mean of the underlying normal distribution is:
+     *
+     *     mu = log(meanTime) - sigma^2 / 2
+     */
+    public LogNormal(long meanTime, double sigma, TimeUnit unit) {
+        this(meanTime, sigma, unit, new SplittableRandom());
+    }
+
+    /**
+     * Initializes the load generator with the given arguments and seed (see Exponential).
+     */
+    public LogNormal(long meanTime, double sigma, TimeUnit unit, long seed) {
+        this(meanTime, sigma, unit, new SplittableRandom(seed));
+    }
+
+    private LogNormal(long meanTime, double sigma, TimeUnit unit, SplittableRandom random) {
+        Sys.assertTrue(meanTime > 0 && sigma >= 0);
+
+        meanTimeNs = TimeUnit.NANOSECONDS.convert(meanTime, unit);
+        this.sigma = sigma;
+        mu = Math.log(meanTimeNs) - sigma * sigma / 2;
+        this.random = random;
+    }
+
+    /**
+     * Returns the relative time of the next arrival (in nanoseconds precision):
+     *
+     *     t = exp(mu + sigma * normal)
+     *
+     * where `normal` is a standard normal sample generated by the Marsaglia polar method[2].
+     */
+    @Override
+    public long nextRelativeTimeNs() {
+        return (long) Math.exp(mu + sigma * nextNormal());
+    }
+
+    private double nextNormal() {
+        if (!Double.isNaN(spare)) {
+            double normal = spare;
+            spare = Double.NaN;
+            return normal;
+        }
+        double u, v, s;
+        do {
+            u = 2 * random.nextDouble() - 1;
+            v = 2 * random.nextDouble() - 1;
+            s = u * u + v * v;
+        } while (s >= 1 || s == 0);
+        double factor = Math.sqrt(-2 * Math.log(s) / s);
+        spare = v * factor;
+        return u * factor;
+    }
+
+    /**
+     * Returns a brief info about this Load generator: the mean arrival time in ms and the sigma.
+     */
+    @Override
+    public String toString() {
+        return "Log-normal distribution with mean arrival time of " + meanTimeNs / 1_000_000d +
+                " ms and sigma " + sigma;
+    }
+}
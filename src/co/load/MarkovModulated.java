@@ -0,0 +1,107 @@
+package co.load;
+
+import co.Load;
+import co.Sys;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents the load of a Markov-modulated Poisson process (MMPP)[1]. The process is in one of
+ * several states at a time, in each state the requests arrive as a Poisson process with the mean
+ * time of that state (see Exponential). The process stays in a state for an exponentially
+ * distributed time with the mean sojourn time of that state, then switches to one of the other
+ * states with equal probability.
+ *
+ * Eg. two states with mean times of 1 ms and 0.1 ms and sojourn times of 1 s and 100 ms model
+ * bursts of 10x the base rate for 100 ms on average, about every second.
+ *
+ * NOTES:
+ *
+ * - As the exponential distribution is memoryless, the arrival pending at a state switch is
+ *   simply drawn again in the new state
+ * - Not thread-safe, see Exponential
+ *
+ * References:
+ *
+ * - [1] <https://en.wikipedia.org/wiki/Markovian_arrival_process>
+ */
+public class MarkovModulated implements Load {
+    private final long[] meanTimesNs, meanSojournsNs;
+    private final SplittableRandom random;
+
+    // the current state and the time left in it
+    private int state;
+    private long sojournNs;
+
+    /**
+     * Initializes the load generator with the given mean times between consecutive requests and
+     * the mean sojourn times of the states (in the same order) in the given time unit. The process
+     * starts in the first state.
+     */
+    public MarkovModulated(long[] meanTimes, long[] meanSojourns, TimeUnit unit) {
+        this(meanTimes, meanSojourns, unit, new SplittableRandom());
+    }
+
+    /**
+     * Initializes the load generator with the given arguments and seed (see Exponential).
+     */
+    public MarkovModulated(long[] meanTimes, long[] meanSojourns, TimeUnit unit, long seed) {
+        this(meanTimes, meanSojourns, unit, new SplittableRandom(seed));
+    }
+
+    private MarkovModulated(long[] meanTimes, long[] meanSojourns, TimeUnit unit,
+                            SplittableRandom random) {
+        Sys.assertTrue(meanTimes.length > 0 && meanTimes.length == meanSojourns.length);
+
+        meanTimesNs = new long[meanTimes.length];
+        meanSojournsNs = new long[meanTimes.length];
+        for (int i = 0; i < meanTimes.length; i++) {
+            Sys.assertTrue(meanTimes[i] > 0 && meanSojourns[i] > 0);
+            meanTimesNs[i] = TimeUnit.NANOSECONDS.convert(meanTimes[i], unit);
+            meanSojournsNs[i] = TimeUnit.NANOSECONDS.convert(meanSojourns[i], unit);
+        }
+        this.random = random;
+        sojournNs = exponential(meanSojournsNs[0]);
+    }
+
+    /**
+     * Returns the relative time of the next arrival (in nanoseconds precision), that is the time
+     * between two consecutive requests, switching states in the meantime if their sojourn time is
+     * over.
+     */
+    @Override
+    public long nextRelativeTimeNs() {
+        long timeNs = 0, nextNs;
+        while ((nextNs = exponential(meanTimesNs[state])) >= sojournNs) {
+            // the state is over before the next arrival: switch to another state
+            timeNs += sojournNs;
+            if (meanTimesNs.length > 1) {
+                int other = random.nextInt(meanTimesNs.length - 1);
+                state = other < state ? other : other + 1;
+            }
+            sojournNs = exponential(meanSojournsNs[state]);
+        }
+        sojournNs -= nextNs;
+        return timeNs + nextNs;
+    }
+
+    private long exponential(long meanNs) {
+        return (long) (-meanNs * Math.log(1 - random.nextDouble()));
+    }
+
+    /**
+     * Returns a brief info about this Load generator: the mean arrival and sojourn time of each
+     * state in ms.
+     */
+    @Override
+    public String toString() {
+        StringBuilder info = new StringBuilder("Markov-modulated Poisson process with states");
+        for (int i = 0; i < meanTimesNs.length; i++) {
+            info.append(i == 0 ? " " : ", ")
+                    .append("(mean arrival time of ").append(meanTimesNs[i] / 1_000_000d)
+                    .append(" ms for ").append(meanSojournsNs[i] / 1_000_000d).append(" ms)");
+        }
+        return info.toString();
+    }
+}
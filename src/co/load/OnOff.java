@@ -0,0 +1,86 @@
+package co.load;
+
+import co.Load;
+import co.Sys;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents a load of periodic bursts: during the on period the requests arrive as a Poisson
+ * process with the given mean time (see Exponential), during the off period there are no requests
+ * at all. The periods follow each other periodically, starting with an on period.
+ *
+ * Eg. on for 100 ms with a mean time of 0.01 ms and off for 900 ms models a burst of 10k requests
+ * every second.
+ *
+ * NOTES:
+ *
+ * - The period durations are constant, see MarkovModulated for random ones
+ * - Not thread-safe, see Exponential
+ */
+public class OnOff implements Load {
+    private final long meanTimeNs, onNs, offNs;
+    private final SplittableRandom random;
+
+    // the time left in the current on period
+    private long onLeftNs;
+
+    /**
+     * Initializes the load generator with the given mean time between consecutive requests within
+     * an on period, the length of the on and the off periods, in the given time unit.
+     */
+    public OnOff(long meanTime, long on, long off, TimeUnit unit) {
+        this(meanTime, on, off, unit, new SplittableRandom());
+    }
+
+    /**
+     * Initializes the load generator with the given arguments and seed (see Exponential).
+     */
+    public OnOff(long meanTime, long on, long off, TimeUnit unit, long seed) {
+        this(meanTime, on, off, unit, new SplittableRandom(seed));
+    }
+
+    private OnOff(long meanTime, long on, long off, TimeUnit unit, SplittableRandom random) {
+        Sys.assertTrue(meanTime > 0 && on > 0 && off >= 0);
+
+        meanTimeNs = TimeUnit.NANOSECONDS.convert(meanTime, unit);
+        onNs = TimeUnit.NANOSECONDS.convert(on, unit);
+        offNs = TimeUnit.NANOSECONDS.convert(off, unit);
+        this.random = random;
+        onLeftNs = onNs;
+    }
+
+    /**
+     * Returns the relative time of the next arrival (in nanoseconds precision), that is the time
+     * between two consecutive requests, skipping the off periods in the meantime.
+     */
+    @Override
+    public long nextRelativeTimeNs() {
+        long timeNs = 0, nextNs;
+        while ((nextNs = (long) (-meanTimeNs * Math.log(1 - random.nextDouble()))) >= onLeftNs) {
+            // the burst is over before the next arrival: wait for the next one
+            timeNs += onLeftNs + offNs;
+            onLeftNs = onNs;
+        }
+        onLeftNs -= nextNs;
+        return timeNs + nextNs;
+    }
+
+    /**
+     * Restarts with a full on period.
+     */
+    @Override
+    public void reset() {
+        onLeftNs = onNs;
+    }
+
+    /**
+     * Returns a brief info about this Load generator: the mean arrival time and the periods in ms.
+     */
+    @Override
+    public String toString() {
+        return "On/off bursts with mean arrival time of " + meanTimeNs / 1_000_000d +
+                " ms, on for " + onNs / 1_000_000d + " ms, off for " + offNs / 1_000_000d + " ms";
+    }
+}
@@ -0,0 +1,78 @@
+package co.load;
+
+import co.Load;
+import co.Sys;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents a load with heavy-tailed times between consecutive requests, following a Pareto
+ * distribution[1]. The smaller the shape, the heavier the tail: long silences followed by dense
+ * bursts.
+ *
+ * NOTES:
+ *
+ * - The shape must be greater than 1, otherwise the mean time is infinite
+ * - Not thread-safe, see Exponential
+ *
+ * References:
+ *
+ * - [1] <http://en.wikipedia.org/wiki/Pareto_distribution>
+ */
+public class Pareto implements Load {
+    private final long meanTimeNs;
+    private final double shape, scaleNs;
+    private final SplittableRandom random;
+
+    /**
+     * Initializes the load generator with the given mean time between consecutive requests, shape
+     * and time unit.
+     *
+     * Speaking formally the load will produce samples from the following probability distribution
+     * function (pdf):
+     *
+     *     pdf(t) = shape * scale^shape / t^(shape+1) : if t>=scale and 0 otherwise
+     *
+     * where scale = meanTime * (shape-1) / shape, that is the minimum time.
+     */
+    public Pareto(long meanTime, double shape, TimeUnit unit) {
+        this(meanTime, shape, unit, new SplittableRandom());
+    }
+
+    /**
+     * Initializes the load generator with the given arguments and seed (see Exponential).
+     */
+    public Pareto(long meanTime, double shape, TimeUnit unit, long seed) {
+        this(meanTime, shape, unit, new SplittableRandom(seed));
+    }
+
+    private Pareto(long meanTime, double shape, TimeUnit unit, SplittableRandom random) {
+        Sys.assertTrue(meanTime > 0 && shape > 1);
+
+        meanTimeNs = TimeUnit.NANOSECONDS.convert(meanTime, unit);
+        this.shape = shape;
+        scaleNs = meanTimeNs * (shape - 1) / shape;
+        this.random = random;
+    }
+
+    /**
+     * Returns the relative time of the next arrival (in nanoseconds precision) by inverse transform
+     * sampling (see Exponential):
+     *
+     *     t = scale / (1 - random)^(1/shape)
+     */
+    @Override
+    public long nextRelativeTimeNs() {
+        return (long) (scaleNs / Math.pow(1 - random.nextDouble(), 1 / shape));
+    }
+
+    /**
+     * Returns a brief info about this Load generator: the mean arrival time in ms and the shape.
+     */
+    @Override
+    public String toString() {
+        return "Pareto distribution with mean arrival time of " + meanTimeNs / 1_000_000d +
+                " ms and shape " + shape;
+    }
+}
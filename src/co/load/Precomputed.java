@@ -0,0 +1,213 @@
+package co.load;
+
+import co.Load;
+import co.Sys;
+
+import java.io.Closeable;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Represents a load whose arrival schedule is precomputed by another Load into primitive buffers,
+ * so scheduling the next arrival costs a single array read.
+ *
+ * PROCESS: The schedule is computed in chunks. The first two chunks are computed by the
+ * constructor (and by reset), ie. before the benchmark starts. When the current chunk is
+ * exhausted, the load switches to the next (precomputed) one and hands the exhausted chunk over to
+ * a background thread, which refills it with the next part of the schedule.
+ *
+ * FEATURES:
+ *
+ * - The schedule is the same as that of the underlying load, eg. a seeded Exponential gives
+ *   identical arrivals in every run, as the underlying load is called by one thread at a time
+ * - If the chunk size is not less than the number of requests (including the warmup), the whole
+ *   schedule is precomputed before the benchmark and the background thread is idle
+ *
+ * NOTES:
+ *
+ * - If the underlying load fails (eg. a Trace is exhausted), the arrivals computed before are still
+ *   returned, then the failure is rethrown by the scheduling thread, at the arrival it belongs to
+ * - If the background thread falls behind, the scheduling thread waits for the next chunk
+ * - The background thread is a daemon thread, it is stopped by close
+ * - reset resets the underlying load as well and drops the precomputed arrivals (the Benchmark
+ *   calls it after the warmup)
+ * - Not thread-safe, it should be called by the scheduling thread only
+ */
+public class Precomputed implements Load, Closeable {
+    private static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+
+    private final Load load;
+    private final int chunkSize;
+
+    // the chunks to be refilled by the background thread and the refilled ones
+    private final ArrayBlockingQueue<Chunk> empty = new ArrayBlockingQueue<>(2),
+            full = new ArrayBlockingQueue<>(2);
+
+    private Thread refiller;
+
+    // the first failure of the underlying load, null if it has not failed
+    private volatile Throwable failure;
+
+    // the current chunk and the index of the next arrival within it
+    private Chunk chunk;
+    private int next;
+
+    /**
+     * Initializes the load with the given underlying load and the default chunk size (64k
+     * arrivals).
+     */
+    public Precomputed(Load load) {
+        this(load, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Initializes the load with the given underlying load and chunk size (number of arrivals).
+     */
+    public Precomputed(Load load, int chunkSize) {
+        Sys.assertTrue(load != null && chunkSize > 0);
+
+        this.load = load;
+        this.chunkSize = chunkSize;
+
+        chunk = fill(new Chunk(chunkSize));
+        full.add(fill(new Chunk(chunkSize)));
+        startRefiller();
+    }
+
+    private void startRefiller() {
+        refiller = new Thread(this::refill, "precomputed load");
+        refiller.setDaemon(true);
+        refiller.start();
+    }
+
+    /**
+     * Returns the next precomputed arrival time of the underlying load.
+     */
+    @Override
+    public long nextRelativeTimeNs() {
+        while (next == chunk.size) {
+            if (chunk.failure != null) { throw rethrow(chunk.failure); }
+            nextChunk();
+        }
+        return chunk.values[next++];
+    }
+
+    /**
+     * Stops the background thread, resets the underlying load and computes the first two chunks
+     * again.
+     */
+    @Override
+    public void reset() {
+        // the current chunk is never in the queue of the empty ones, so there is room for STOP
+        empty.add(Chunk.STOP);
+        try {
+            refiller.join();
+        }
+        catch (InterruptedException e) {
+            throw new IllegalStateException("waiting for the precomputed load interrupted", e);
+        }
+
+        // the other chunk is either refilled or waiting to be refilled
+        Chunk other = full.poll();
+        if (other == null) { other = empty.poll(); }
+        empty.clear();
+
+        load.reset();
+        failure = null;
+        chunk = fill(chunk);
+        next = 0;
+        full.add(fill(other));
+        startRefiller();
+    }
+
+    private static RuntimeException rethrow(Throwable failure) {
+        if (failure instanceof RuntimeException) { return (RuntimeException) failure; }
+        if (failure instanceof Error) { throw (Error) failure; }
+        return new IllegalStateException(failure);
+    }
+
+    /**
+     * Switches to the next chunk, hands the current one over to the background thread.
+     */
+    private void nextChunk() {
+        empty.add(chunk);
+        try {
+            chunk = full.take();
+        }
+        catch (InterruptedException e) {
+            throw new IllegalStateException("waiting for the precomputed load interrupted", e);
+        }
+        next = 0;
+    }
+
+    /**
+     * The loop of the background thread.
+     */
+    private void refill() {
+        try {
+            Chunk taken;
+            while (!Thread.currentThread().isInterrupted() &&
+                    (taken = empty.take()) != Chunk.STOP) {
+                full.add(fill(taken));
+            }
+        }
+        catch (InterruptedException e) { Sys.debug("precomputed load stopped"); }
+    }
+
+    /**
+     * Fills the given chunk with the next arrivals, up to the failure of the underlying load (which
+     * is not called after it failed once).
+     */
+    private Chunk fill(Chunk chunk) {
+        chunk.size = 0;
+        chunk.failure = failure;
+        if (chunk.failure != null) { return chunk; }
+
+        try {
+            for (long[] values = chunk.values; chunk.size < values.length; chunk.size++) {
+                values[chunk.size] = load.nextRelativeTimeNs();
+            }
+        }
+        catch (Throwable e) {
+            failure = e;
+            chunk.failure = e;
+        }
+        return chunk;
+    }
+
+    /**
+     * Stops the background thread.
+     */
+    @Override
+    public void close() {
+        refiller.interrupt();
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * A chunk of the schedule: the arrivals computed and the failure of the underlying load after
+     * them, if any.
+     */
+    private static class Chunk {
+        // stops the background thread (see reset)
+        static final Chunk STOP = new Chunk(0);
+
+        final long[] values;
+        int size;
+        Throwable failure;
+
+        Chunk(int capacity) {
+            values = new long[capacity];
+        }
+    }
+
+    /**
+     * Returns a brief info about this Load generator: the underlying load and the chunk size.
+     */
+    @Override
+    public String toString() {
+        return load + " (precomputed in chunks of " + chunkSize + ")";
+    }
+}
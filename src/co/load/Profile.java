@@ -0,0 +1,130 @@
+package co.load;
+
+import co.Load;
+import co.Sys;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents a load profile of consecutive phases, each phase is a Load for a given duration, eg.
+ * 60 s at 1k requests/s (Steady or Exponential), a step to 5k requests/s, then a Ramp down. The
+ * phases are executed continuously within a single Benchmark run, so the transient behaviour at
+ * the phase changes (eg. the recovery after an overload) is measured as well. The Benchmark
+ * reports the indicators of each phase and of the transitions (see PhaseRecorder).
+ *
+ * PROCESS: The profile keeps the time of its arrival schedule, ie. the sum of the relative times
+ * returned so far. The first request arrives at the start of the profile (time 0), the next ones
+ * according to the Load of the phase the schedule is in. When the next arrival would fall beyond
+ * the end of the phase, the next phase starts: its first arrival is drawn from its Load starting
+ * at the end of the previous phase. After the last phase, the Load of the last phase is continued.
+ *
+ * NOTES:
+ *
+ * - The Benchmark resets the profile after the warmup, so the warmup runs in the first phase
+ * - The Benchmark runs for the duration of the profile (see getDurationNs) unless its duration is
+ *   set, hence, as in soak mode, the recorded timings are not kept, only the histograms
+ * - Not thread-safe, see Exponential
+ */
+public class Profile implements Load {
+    private final List<String> names = new ArrayList<>();
+    private final List<Load> loads = new ArrayList<>();
+    private final List<Long> endsNs = new ArrayList<>();
+
+    // the current phase and the time of the last arrival
+    private int phase;
+    private long timeNs;
+    private boolean started;
+
+    /**
+     * Adds the next phase of the given name, Load and duration.
+     */
+    public void addPhase(String name, Load load, long duration, TimeUnit unit) {
+        Sys.assertTrue(name != null && load != null && duration > 0);
+
+        names.add(name);
+        loads.add(load);
+        endsNs.add(getDurationNs() + TimeUnit.NANOSECONDS.convert(duration, unit));
+    }
+
+    /**
+     * Returns the relative time of the next arrival (in nanoseconds precision) according to the
+     * Load of the current phase, moving to the next phase if the current one is over.
+     */
+    @Override
+    public long nextRelativeTimeNs() {
+        Sys.assertTrue(!loads.isEmpty());
+
+        if (!started) {
+            started = true;
+            return 0;
+        }
+
+        long nextNs = timeNs + loads.get(phase).nextRelativeTimeNs();
+        while (phase < loads.size() - 1 && nextNs >= endsNs.get(phase)) {
+            // the phase is over before the next arrival: draw it in the next phase
+            nextNs = endsNs.get(phase) + loads.get(++phase).nextRelativeTimeNs();
+        }
+
+        long relativeTimeNs = nextNs - timeNs;
+        timeNs = nextNs;
+        return relativeTimeNs;
+    }
+
+    /**
+     * Starts over from the first phase. The Loads of the phases are reset as well.
+     */
+    @Override
+    public void reset() {
+        phase = 0;
+        timeNs = 0;
+        started = false;
+        for (Load load : loads) { load.reset(); }
+    }
+
+    /**
+     * Returns the number of phases.
+     */
+    public int getPhaseCount() {
+        return loads.size();
+    }
+
+    public String getPhaseName(int phase) {
+        return names.get(phase);
+    }
+
+    public Load getPhaseLoad(int phase) {
+        return loads.get(phase);
+    }
+
+    /**
+     * Returns the end of the given phase in nanoseconds from the start of the profile.
+     */
+    public long getPhaseEndNs(int phase) {
+        return endsNs.get(phase);
+    }
+
+    /**
+     * Returns the total duration of the phases in nanoseconds.
+     */
+    public long getDurationNs() {
+        return endsNs.isEmpty() ? 0 : endsNs.get(endsNs.size() - 1);
+    }
+
+    /**
+     * Returns a brief info about this Load generator: the phases with their Loads and durations.
+     */
+    @Override
+    public String toString() {
+        StringBuilder info = new StringBuilder("Profile of " + loads.size() + " phases");
+        long startNs = 0;
+        for (int i = 0; i < loads.size(); i++) {
+            info.append(i == 0 ? ": " : ", ").append(names.get(i)).append(" (")
+                    .append(loads.get(i)).append(" for ")
+                    .append((endsNs.get(i) - startNs) / 1_000_000d).append(" ms)");
+            startNs = endsNs.get(i);
+        }
+        return info.toString();
+    }
+}
@@ -0,0 +1,66 @@
+package co.load;
+
+import co.Sys;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents the load of a Poisson process whose rate ramps up (or down) linearly: the mean time
+ * between consecutive requests is startMeanTime at the beginning, endMeanTime at the end of the
+ * ramp and it stays so afterwards. Eg. to find the load where the latency breaks down in a single
+ * run. See Thinned.
+ */
+public class Ramp extends Thinned {
+    private final long startMeanTimeNs, endMeanTimeNs, durationNs;
+    private final double startRate, endRate;
+
+    /**
+     * Initializes the load generator with the given mean times at the start and at the end of the
+     * ramp, the duration of the ramp in the given time unit.
+     */
+    public Ramp(long startMeanTime, long endMeanTime, long duration, TimeUnit unit) {
+        this(startMeanTime, endMeanTime, duration, unit, new SplittableRandom());
+    }
+
+    /**
+     * Initializes the load generator with the given arguments and seed (see Exponential).
+     */
+    public Ramp(long startMeanTime, long endMeanTime, long duration, TimeUnit unit, long seed) {
+        this(startMeanTime, endMeanTime, duration, unit, new SplittableRandom(seed));
+    }
+
+    private Ramp(long startMeanTime, long endMeanTime, long duration, TimeUnit unit,
+                 SplittableRandom random) {
+        super(random);
+        Sys.assertTrue(startMeanTime > 0 && endMeanTime > 0 && duration > 0);
+
+        startMeanTimeNs = TimeUnit.NANOSECONDS.convert(startMeanTime, unit);
+        endMeanTimeNs = TimeUnit.NANOSECONDS.convert(endMeanTime, unit);
+        durationNs = TimeUnit.NANOSECONDS.convert(duration, unit);
+        startRate = 1d / startMeanTimeNs;
+        endRate = 1d / endMeanTimeNs;
+    }
+
+    @Override
+    protected double rate(long timeNs) {
+        if (timeNs >= durationNs) { return endRate; }
+        return startRate + (endRate - startRate) * timeNs / durationNs;
+    }
+
+    @Override
+    protected double maxRate() {
+        return Math.max(startRate, endRate);
+    }
+
+    /**
+     * Returns a brief info about this Load generator: the mean arrival times and the duration of
+     * the ramp in ms.
+     */
+    @Override
+    public String toString() {
+        return "Poisson process ramping from mean arrival time of " + startMeanTimeNs / 1_000_000d +
+                " ms to " + endMeanTimeNs / 1_000_000d + " ms in " + durationNs / 1_000_000d +
+                " ms";
+    }
+}
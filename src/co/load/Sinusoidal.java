@@ -0,0 +1,65 @@
+package co.load;
+
+import co.Sys;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents the load of a Poisson process whose rate oscillates around the given mean, eg. a
+ * diurnal traffic pattern compressed into minutes. The rate at time t is:
+ *
+ *     rate(t) = 1/meanTime * (1 + amplitude * sin(2 * PI * t / period))
+ *
+ * where the amplitude is within [0, 1]. See Thinned.
+ */
+public class Sinusoidal extends Thinned {
+    private final long meanTimeNs, periodNs;
+    private final double amplitude, meanRate;
+
+    /**
+     * Initializes the load generator with the given mean time between consecutive requests,
+     * relative amplitude of the rate, period of the oscillation in the given time unit.
+     */
+    public Sinusoidal(long meanTime, double amplitude, long period, TimeUnit unit) {
+        this(meanTime, amplitude, period, unit, new SplittableRandom());
+    }
+
+    /**
+     * Initializes the load generator with the given arguments and seed (see Exponential).
+     */
+    public Sinusoidal(long meanTime, double amplitude, long period, TimeUnit unit, long seed) {
+        this(meanTime, amplitude, period, unit, new SplittableRandom(seed));
+    }
+
+    private Sinusoidal(long meanTime, double amplitude, long period, TimeUnit unit,
+                       SplittableRandom random) {
+        super(random);
+        Sys.assertTrue(meanTime > 0 && amplitude >= 0 && amplitude <= 1 && period > 0);
+
+        meanTimeNs = TimeUnit.NANOSECONDS.convert(meanTime, unit);
+        periodNs = TimeUnit.NANOSECONDS.convert(period, unit);
+        this.amplitude = amplitude;
+        meanRate = 1d / meanTimeNs;
+    }
+
+    @Override
+    protected double rate(long timeNs) {
+        return meanRate * (1 + amplitude * Math.sin(2 * Math.PI * (timeNs % periodNs) / periodNs));
+    }
+
+    @Override
+    protected double maxRate() {
+        return meanRate * (1 + amplitude);
+    }
+
+    /**
+     * Returns a brief info about this Load generator: the mean arrival time, the amplitude and the
+     * period in ms.
+     */
+    @Override
+    public String toString() {
+        return "Sinusoidal Poisson process with mean arrival time of " + meanTimeNs / 1_000_000d +
+                " ms, amplitude " + amplitude + " and period of " + periodNs / 1_000_000d + " ms";
+    }
+}
@@ -0,0 +1,82 @@
+package co.load;
+
+import co.Load;
+import co.Sys;
+
+import java.util.SplittableRandom;
+
+/**
+ * Represents the load of a non-homogeneous Poisson process, ie. a Poisson process whose rate
+ * varies over time (see Ramp and Sinusoidal). The arrivals are generated by thinning[1]: candidate
+ * arrivals are drawn from a Poisson process of the maximum rate, and each candidate is accepted
+ * with the probability rate(t) / maxRate.
+ *
+ * The time (t) is the time of the arrival schedule, ie. the sum of the relative times returned so
+ * far, starting from 0.
+ *
+ * NOTES:
+ *
+ * - Not thread-safe, see Exponential
+ *
+ * References:
+ *
+ * - [1] Lewis, P. A. W. and Shedler, G. S.: Simulation of nonhomogeneous Poisson processes by
+ *   thinning, Naval Research Logistics Quarterly 26(3), 1979
+ */
+public abstract class Thinned implements Load {
+    private final SplittableRandom random;
+
+    // the time of the last arrival
+    private long timeNs;
+
+    /**
+     * Initializes the load generator with the given random number generator, seeded or not (see
+     * Exponential).
+     */
+    protected Thinned(SplittableRandom random) {
+        this.random = random;
+    }
+
+    /**
+     * Returns the arrival rate at the given time in requests per nanosecond.
+     */
+    protected abstract double rate(long timeNs);
+
+    /**
+     * Returns the maximum of the arrival rate in requests per nanosecond.
+     */
+    protected abstract double maxRate();
+
+    /**
+     * Returns the relative time of the next accepted arrival (in nanoseconds precision).
+     */
+    @Override
+    public long nextRelativeTimeNs() {
+        double maxRate = maxRate();
+        Sys.assertTrue(maxRate > 0);
+
+        long candidateNs = timeNs;
+        do {
+            candidateNs += (long) (-Math.log(1 - random.nextDouble()) / maxRate);
+        } while (random.nextDouble() * maxRate > rate(candidateNs));
+
+        long relativeTimeNs = candidateNs - timeNs;
+        timeNs = candidateNs;
+        return relativeTimeNs;
+    }
+
+    /**
+     * Restarts the time of the arrival schedule from 0.
+     */
+    @Override
+    public void reset() {
+        timeNs = 0;
+    }
+
+    /**
+     * Returns the time of the last arrival in nanoseconds.
+     */
+    public long getTimeNs() {
+        return timeNs;
+    }
+}
@@ -0,0 +1,273 @@
+package co.load;
+
+import co.Load;
+import co.Sys;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents a load replayed from a trace of arrival timestamps, eg. captured from the access log
+ * of a production service.
+ *
+ * FEATURES:
+ *
+ * - Reads the trace through memory mapped windows, so even a trace of 100M timestamps is not
+ *   loaded onto the heap
+ * - Optionally scales the time (eg. speed 2 replays the trace twice as fast)
+ * - Optionally loops the trace when it is exhausted
+ *
+ * FORMAT: The trace contains the (absolute) arrival timestamps in ascending order in the given
+ * time unit, either:
+ *
+ * - BINARY: 8 byte big endian integers, or
+ * - TEXT: one decimal integer per line, anything else (eg. a comment or a CSV column) is rejected
+ *   by IllegalArgumentException
+ *
+ * The load returns the difference between consecutive timestamps, a timestamp earlier than the
+ * previous one (eg. the log of several threads) is taken as a zero difference. When looping, the
+ * first request of the next round arrives after the average difference of the trace.
+ *
+ * NOTES:
+ *
+ * - Without looping, the trace must contain more timestamps than the requests of the benchmark
+ *   (see getCount), otherwise IllegalStateException is thrown. The trace starts over after the
+ *   warmup (see reset), hence the warmup replays the beginning of the trace as well
+ * - The trace file is open until close is called
+ */
+public class Trace implements Load, Closeable {
+    public enum Format { BINARY, TEXT }
+
+    // the size of the memory mapped windows
+    private static final long WINDOW_SIZE = 64 << 20;
+
+    private final String path;
+    private final Format format;
+    private final TimeUnit unit;
+    private final FileChannel channel;
+    private final long length;
+
+    private double speed = 1;
+    private boolean loop;
+
+    // the current window and its position in the file
+    private MappedByteBuffer buffer;
+    private long position;
+
+    // the previous and the first timestamp, the number of timestamps read in the current round
+    private long prev, first, count;
+
+    // the number of timestamps in the trace, -1 if not counted yet
+    private long traceCount = -1;
+
+    /**
+     * Opens the trace file of the given format, the timestamps are in the given time unit.
+     */
+    public Trace(String path, Format format, TimeUnit unit) {
+        this.path = path;
+        this.format = format;
+        this.unit = unit;
+        try {
+            channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+            length = channel.size();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (format == Format.BINARY) {
+            Sys.assertTrue(length % 8 == 0);
+            traceCount = length / 8;
+        }
+    }
+
+    /**
+     * Returns the relative time of the next arrival (in nanoseconds precision), that is the
+     * difference between the next and the current timestamp of the trace, divided by the speed.
+     */
+    @Override
+    public long nextRelativeTimeNs() {
+        long diff;
+        if (!hasNext()) {
+            if (!loop || count < 2) {
+                throw new IllegalStateException("trace exhausted after " + count +
+                        " timestamps: " + path);
+            }
+            // start over after the average difference
+            diff = (prev - first) / (count - 1);
+            rewind();
+            prev = next();
+            first = prev;
+            count = 1;
+        }
+        else if (count == 0) {
+            // the first request arrives right at the start
+            prev = next();
+            first = prev;
+            count = 1;
+            diff = 0;
+        }
+        else {
+            long timestamp = next();
+            diff = Math.max(0, timestamp - prev);
+            prev = timestamp;
+            count++;
+        }
+        return (long) (TimeUnit.NANOSECONDS.convert(diff, unit) / speed);
+    }
+
+    /**
+     * Starts the trace over from its first timestamp (called by the Benchmark after the warmup).
+     */
+    @Override
+    public void reset() {
+        rewind();
+        prev = 0;
+        first = 0;
+        count = 0;
+    }
+
+    /**
+     * Returns the number of timestamps in the trace. A text trace is scanned on the first call.
+     */
+    public long getCount() {
+        if (traceCount < 0) {
+            try (Trace trace = new Trace(path, format, unit)) {
+                long n = 0;
+                while (trace.hasNext()) {
+                    trace.next();
+                    n++;
+                }
+                traceCount = n;
+            }
+        }
+        return traceCount;
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    /**
+     * Sets the speed of the replay, eg. 2 replays the trace twice as fast, 1 by default.
+     */
+    public void setSpeed(double speed) {
+        Sys.assertTrue(speed > 0);
+
+        this.speed = speed;
+    }
+
+    public boolean isLoop() {
+        return loop;
+    }
+
+    /**
+     * Sets whether the trace starts over when it is exhausted, false by default.
+     */
+    public void setLoop(boolean loop) {
+        this.loop = loop;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean hasNext() {
+        if (format == Format.TEXT) { skipWhitespace(); }
+        return (buffer != null && buffer.hasRemaining()) || position < length;
+    }
+
+    /**
+     * Reads the next timestamp, hasNext must be called before.
+     */
+    private long next() {
+        if (format == Format.BINARY) {
+            // the windows are multiples of 8 bytes, a timestamp never spans two windows
+            map();
+            return buffer.getLong();
+        }
+
+        long timestamp = 0, start = offset();
+        byte b;
+        while (hasRemaining() && (b = peek()) >= '0' && b <= '9') {
+            timestamp = timestamp * 10 + (get() - '0');
+        }
+        if (offset() == start || (hasRemaining() && !isWhitespace(peek()))) {
+            throw new IllegalArgumentException("not a timestamp at offset " + offset() + ": " +
+                    path);
+        }
+        return timestamp;
+    }
+
+    /**
+     * Returns the offset of the next byte in the file.
+     */
+    private long offset() {
+        return buffer == null ? position : position - buffer.remaining();
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == '\n' || b == '\r' || b == ' ' || b == '\t';
+    }
+
+    private void skipWhitespace() {
+        while (hasRemaining() && isWhitespace(peek())) {
+            get();
+        }
+    }
+
+    private boolean hasRemaining() {
+        return (buffer != null && buffer.hasRemaining()) || position < length;
+    }
+
+    private byte peek() {
+        map();
+        return buffer.get(buffer.position());
+    }
+
+    private byte get() {
+        map();
+        return buffer.get();
+    }
+
+    /**
+     * Maps the next window if the current one is exhausted.
+     */
+    private void map() {
+        if (buffer == null || !buffer.hasRemaining()) {
+            try {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(WINDOW_SIZE, length - position));
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            position += buffer.capacity();
+        }
+    }
+
+    private void rewind() {
+        buffer = null;
+        position = 0;
+    }
+
+    /**
+     * Returns a brief info about this Load generator: the trace file and the replay options.
+     */
+    @Override
+    public String toString() {
+        return "Trace replayed from " + path + (speed != 1 ? " at " + speed + "x speed" : "") +
+                (loop ? " in a loop" : "");
+    }
+}
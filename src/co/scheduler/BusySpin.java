@@ -0,0 +1,22 @@
+package co.scheduler;
+
+import co.Scheduler;
+
+/**
+ * A scheduler that busy spins until the given time. It is the most accurate one, but burns a whole
+ * core while waiting.
+ */
+public class BusySpin implements Scheduler {
+
+    @Override
+    public void waitUntil(long timeNs) {
+        while (System.nanoTime() < timeNs) {
+            Thread.onSpinWait();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Busy spin";
+    }
+}
@@ -0,0 +1,41 @@
+package co.scheduler;
+
+import co.Scheduler;
+import co.Sys;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A hybrid scheduler: parks the thread until the given time minus the spin threshold, then busy
+ * spins for the rest. The spin threshold should be chosen to be larger than the typical park
+ * overshoot of the platform, so that the scheduler is accurate while keeps CPU usage moderate.
+ */
+public class ParkSpin implements Scheduler {
+    private final long spinThresholdNs;
+
+    /**
+     * Initializes the scheduler with the given spin threshold and time unit.
+     */
+    public ParkSpin(long spinThreshold, TimeUnit unit) {
+        Sys.assertTrue(spinThreshold >= 0);
+
+        spinThresholdNs = TimeUnit.NANOSECONDS.convert(spinThreshold, unit);
+    }
+
+    @Override
+    public void waitUntil(long timeNs) {
+        long remainingNs;
+        while ((remainingNs = timeNs - System.nanoTime()) > spinThresholdNs) {
+            LockSupport.parkNanos(remainingNs - spinThresholdNs);
+        }
+        while (System.nanoTime() < timeNs) {
+            Thread.onSpinWait();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Park then spin below " + (double) spinThresholdNs / 1_000d + " us";
+    }
+}
@@ -0,0 +1,32 @@
+package co.scheduler;
+
+import co.Scheduler;
+import co.Sys;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A scheduler that sleeps until the given time with Thread.sleep. It is cheap but inaccurate: on
+ * most operating systems it overshoots by 50 us - 1 ms.
+ */
+public class Sleep implements Scheduler {
+
+    @Override
+    public void waitUntil(long timeNs) {
+        long nowNs;
+        int sleepTimeMs, sleepTimeNs;
+        while ((nowNs = System.nanoTime()) < timeNs) {
+            sleepTimeMs = (int) TimeUnit.MILLISECONDS.convert(timeNs
+                - nowNs, TimeUnit.NANOSECONDS);
+            sleepTimeNs = (int) (timeNs - nowNs -
+                TimeUnit.NANOSECONDS.convert(sleepTimeMs, TimeUnit.MILLISECONDS));
+            try { Thread.sleep(sleepTimeMs, sleepTimeNs); }
+            catch(InterruptedException e) { Sys.debug("scheduled wait interrupted"); }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Sleep";
+    }
+}
@@ -0,0 +1,25 @@
+package co.simulation;
+
+import co.Load;
+
+/**
+ * Processing times drawn from the distribution of a Load, eg. Exponential processing times for an
+ * M/M/1 simulation or Steady ones for M/D/1.
+ */
+public class LoadDistribution implements ProcessingTime {
+    private final Load load;
+
+    public LoadDistribution(Load load) {
+        this.load = load;
+    }
+
+    @Override
+    public long nextProcessingTimeNs() {
+        return load.nextRelativeTimeNs();
+    }
+
+    @Override
+    public String toString() {
+        return load.toString();
+    }
+}
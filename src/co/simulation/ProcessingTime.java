@@ -0,0 +1,17 @@
+package co.simulation;
+
+/**
+ * Represents the distribution of the processing times of the simulated requests.
+ *
+ * RELATIONS:
+ *
+ * - The ProcessingTime interface is called by the Simulation when a request is dispatched to a
+ *   server.
+ */
+public interface ProcessingTime {
+
+    /**
+     * Returns the processing time of the next request in nanoseconds.
+     */
+    public long nextProcessingTimeNs();
+}
@@ -0,0 +1,47 @@
+package co.simulation;
+
+import co.Benchmark;
+import co.Sys;
+import co.stat.RawFile;
+
+/**
+ * Replays recorded processing times, eg. the processing times of a real benchmark (see
+ * fromRawFile). When the trace is exhausted it starts over.
+ */
+public class ProcessingTrace implements ProcessingTime {
+    private final long[] processingTimes;
+    private int next;
+
+    /**
+     * Initializes the trace with the given processing times in nanoseconds.
+     */
+    public ProcessingTrace(long[] processingTimes) {
+        Sys.assertTrue(processingTimes.length > 0);
+
+        this.processingTimes = processingTimes;
+    }
+
+    /**
+     * Returns the trace of the processing times of the given binary raw stat file (see RawFile).
+     */
+    public static ProcessingTrace fromRawFile(String path) {
+        Benchmark.Recording recording = RawFile.read(path);
+        long[] processingTimes = new long[recording.size()];
+        for (int i = 0; i < processingTimes.length; i++) {
+            processingTimes[i] = recording.getFinish(i) - recording.getStart(i);
+        }
+        return new ProcessingTrace(processingTimes);
+    }
+
+    @Override
+    public long nextProcessingTimeNs() {
+        long processingTime = processingTimes[next++];
+        if (next == processingTimes.length) { next = 0; }
+        return processingTime;
+    }
+
+    @Override
+    public String toString() {
+        return "trace of " + processingTimes.length + " processing times";
+    }
+}
@@ -0,0 +1,218 @@
+package co.simulation;
+
+import co.Benchmark;
+import co.Load;
+import co.Stat;
+import co.Sys;
+import co.stat.BenchmarkHistograms;
+import co.stat.BenchmarkIndicators;
+import co.stat.OnlineCorrectionScheme;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulates a service by discrete events on a virtual clock instead of running a Task in real
+ * time, so the correction scheme can be validated against known ground truth at scale.
+ *
+ * PROCESS: The requests arrive according to the given Load. Each request gets its processing time
+ * from the given ProcessingTime distribution (or trace) and is served by the first free one of the
+ * servers in the order of arrival (FCFS). The event queue holds the time each busy server becomes
+ * free (departure events) in a primitive min-heap, the next arrival is taken from the Load, the
+ * virtual clock jumps from event to event. Optionally the whole service stops periodically (eg.
+ * stop-the-world GC pauses): no request is started or processed during a pause.
+ *
+ * Each request is recorded into a Benchmark.Recording as the harness would record it (arrival,
+ * start, finish), in the order of arrival, and the recording is processed by Stat. So the service
+ * time is the ground truth, while the calculated service time is what the correction scheme
+ * estimates from the arrival and the processing times.
+ *
+ * FEATURES:
+ *
+ * - Pluggable Load, ProcessingTime and number of servers
+ * - Periodic pauses
+ * - Constant memory by default (histograms only, see Benchmark.Recording), hence the request count
+ *   is limited only by Integer.MAX_VALUE
+ *
+ * NOTES:
+ *
+ * - The timestamps are virtual, they start at Sys.TIME_ZERO
+ * - The throughput is limited by recording the histograms, roughly 5-10 million requests/s
+ */
+public class Simulation {
+    private final Load load;
+    private final ProcessingTime processingTime;
+    private final int requestCount;
+    private final Stat stat;
+
+    private int serverCount = 1;
+    private long pauseIntervalNs, pauseDurationNs;
+    private boolean keepRecording;
+
+    // the event queue: the times the servers become free, a binary min-heap
+    private long[] freeTimes;
+
+    /**
+     * Initializes the simulation with the given arguments.
+     */
+    public Simulation(Load load, ProcessingTime processingTime, int requestCount, Stat stat) {
+        Sys.assertTrue(load != null && processingTime != null && requestCount >= 0);
+
+        this.load = load;
+        this.processingTime = processingTime;
+        this.requestCount = requestCount;
+        this.stat = stat;
+    }
+
+    /**
+     * Runs the simulation and returns the indicators.
+     */
+    public BenchmarkIndicators run() {
+        Sys.timeZero();
+
+        // configuration info
+        Sys.printlnOut("Load: " + load);
+        Sys.printlnOut("Processing time: " + processingTime);
+        Sys.printlnOut("Servers: " + serverCount);
+        if (pauseIntervalNs > 0) {
+            Sys.printlnOut("Pause: " + (double) pauseDurationNs / 1_000_000 + " ms in every " +
+                    (double) pauseIntervalNs / 1_000_000 + " ms");
+        }
+        Sys.printlnOut("Request count: " + requestCount);
+
+        Sys.printOut("Simulating... ");
+        Benchmark.Recording recording = newRecording();
+        long started = System.nanoTime();
+        simulate(recording);
+        long finished = System.nanoTime();
+        Sys.printlnOut("done in " + (finished - started) / 1_000_000 + " ms");
+
+        return stat.process(recording, false);
+    }
+
+    /**
+     * Creates the recording of the simulation.
+     */
+    protected Benchmark.Recording newRecording() {
+        BenchmarkHistograms histograms = new BenchmarkHistograms(
+                new OnlineCorrectionScheme(0, serverCount), serverCount);
+        return new Benchmark.Recording(keepRecording ? requestCount : 0, serverCount,
+                keepRecording, histograms);
+    }
+
+    /**
+     * The simulation loop.
+     */
+    protected void simulate(Benchmark.Recording recording) {
+        freeTimes = new long[serverCount];
+        Arrays.fill(freeTimes, Long.MIN_VALUE);
+        long arrivalTime = Sys.TIME_ZERO, startTime, finishTime;
+        for (int i = 0; i < requestCount; i++) {
+            // the next arrival
+            arrivalTime += load.nextRelativeTimeNs();
+
+            // the next departure: the server that becomes free first
+            startTime = Math.max(arrivalTime, freeTimes[0]);
+            startTime = resume(startTime);
+            finishTime = process(startTime, processingTime.nextProcessingTimeNs());
+
+            // the server becomes free at the finish
+            freeTimes[0] = finishTime;
+            siftDown();
+
+            recording.add(arrivalTime, startTime, finishTime);
+        }
+    }
+
+    /**
+     * Returns the given time or the end of the pause if the time is within a pause.
+     */
+    private long resume(long time) {
+        if (pauseIntervalNs == 0) { return time; }
+
+        long offset = Math.floorMod(time - Sys.TIME_ZERO, pauseIntervalNs);
+        return offset < pauseDurationNs ? time - offset + pauseDurationNs : time;
+    }
+
+    /**
+     * Returns the finish time of processing started at the given time for the given time, taking
+     * the pauses into account.
+     */
+    private long process(long startTime, long processingTime) {
+        long finishTime = startTime + processingTime;
+        if (pauseIntervalNs == 0) { return finishTime; }
+
+        // the start of the next pause after the start
+        long nextPause = startTime - Math.floorMod(startTime - Sys.TIME_ZERO, pauseIntervalNs)
+                + pauseIntervalNs;
+        while (nextPause < finishTime) {
+            finishTime += pauseDurationNs;
+            nextPause += pauseIntervalNs;
+        }
+        return finishTime;
+    }
+
+    /**
+     * Restores the heap property after the root (the first free server) is updated.
+     */
+    private void siftDown() {
+        long[] heap = freeTimes;
+        int size = heap.length, parent = 0, child;
+        long value = heap[0];
+        while ((child = 2 * parent + 1) < size) {
+            if (child + 1 < size && heap[child + 1] < heap[child]) { child++; }
+            if (heap[child] >= value) { break; }
+            heap[parent] = heap[child];
+            parent = child;
+        }
+        heap[parent] = value;
+    }
+
+    public int getServerCount() {
+        return serverCount;
+    }
+
+    /**
+     * Sets the number of servers, 1 by default.
+     */
+    public void setServerCount(int serverCount) {
+        Sys.assertTrue(serverCount > 0);
+
+        this.serverCount = serverCount;
+    }
+
+    /**
+     * Sets the service to pause for the given duration in every interval, eg. 100 ms in every
+     * second. The first pause starts at the beginning of the simulation.
+     */
+    public void setPause(long interval, long duration, TimeUnit unit) {
+        Sys.assertTrue(interval > 0 && duration >= 0 && duration < interval);
+
+        pauseIntervalNs = TimeUnit.NANOSECONDS.convert(interval, unit);
+        pauseDurationNs = TimeUnit.NANOSECONDS.convert(duration, unit);
+    }
+
+    public boolean isKeepRecording() {
+        return keepRecording;
+    }
+
+    /**
+     * Sets whether the simulated timings are kept in memory (eg. to export them), by default only
+     * the histograms are updated.
+     */
+    public void setKeepRecording(boolean keepRecording) {
+        this.keepRecording = keepRecording;
+    }
+
+    public static void main(String[] args) {
+        // M/M/1 at 80% utilization with a 50 ms pause in every second
+        Load load = new co.load.Exponential(100, TimeUnit.MICROSECONDS);
+        ProcessingTime processingTime = new LoadDistribution(
+                new co.load.Exponential(80, TimeUnit.MICROSECONDS));
+
+        Simulation simulation = new Simulation(load, processingTime, 100_000_000, new Stat());
+        simulation.setPause(1000, 50, TimeUnit.MILLISECONDS);
+
+        simulation.run();
+    }
+}
@@ -0,0 +1,238 @@
+package co.stat;
+
+/**
+ * Handles the histograms of the derived timings of a benchmark (see Timings): idle, wait, dequeue,
+ * processing, grossProcessing, service, arrival diff, schedule lateness and the calculated service
+ * time as per the paper.
+ *
+ * FEATURES:
+ *
+ * - Updates every histogram incrementally as each request is recorded, hence the end-of-run stats
+ *   are essentially free and the memory footprint does not depend on the length of the run
+ * - Tracks the first arrival and the last finish for the throughput
+ * - Histograms of different periods of the same benchmark can be merged
+ *
+ * RELATIONS:
+ *
+ * - Called by the Recording every time a request is recorded, or by BenchmarkRaw when the requests
+ *   are replayed after the benchmark (eg. when they are recorded by several threads)
+ * - Read by BenchmarkIndicators
+ */
+public class BenchmarkHistograms {
+    private final Timings timings;
+
+    private final Histogram idle, wait, dequeue, processing, grossProcessing, service, arrivalDiff,
+            lateness, estimatedService;
+
+    private long count, firstArrival, lastFinish = Long.MIN_VALUE;
+
+    /**
+     * Initializes the histograms with the default configuration (see Histogram), the calculated
+     * service time is not estimated while recording.
+     */
+    public BenchmarkHistograms() {
+        this(null);
+    }
+
+    /**
+     * Initializes the histograms with the default configuration (see Histogram), the calculated
+     * service time is estimated while recording by the given correction scheme (if not null).
+     */
+    public BenchmarkHistograms(OnlineCorrectionScheme correctionScheme) {
+        this(Histogram.DEFAULT_HIGHEST_TRACKABLE_VALUE, Histogram.DEFAULT_SIGNIFICANT_DIGITS,
+                correctionScheme);
+    }
+
+    /**
+     * Initializes the histograms of the requests processed by the given number of servers (see
+     * Timings) with the default configuration, the calculated service time is estimated while
+     * recording by the given correction scheme (if not null).
+     */
+    public BenchmarkHistograms(OnlineCorrectionScheme correctionScheme, int serverCount) {
+        this(Histogram.DEFAULT_HIGHEST_TRACKABLE_VALUE, Histogram.DEFAULT_SIGNIFICANT_DIGITS,
+                correctionScheme, serverCount);
+    }
+
+    /**
+     * Initializes the histograms with the given configuration (see Histogram), the calculated
+     * service time is estimated while recording by the given correction scheme (if not null).
+     */
+    public BenchmarkHistograms(long highestTrackableValue, int significantDigits,
+                               OnlineCorrectionScheme correctionScheme) {
+        this(highestTrackableValue, significantDigits, correctionScheme, 1);
+    }
+
+    /**
+     * Initializes the histograms of the requests processed by the given number of servers (see
+     * Timings) with the given configuration (see Histogram), the calculated service time is
+     * estimated while recording by the given correction scheme (if not null).
+     */
+    public BenchmarkHistograms(long highestTrackableValue, int significantDigits,
+                               OnlineCorrectionScheme correctionScheme, int serverCount) {
+        timings = new Timings(correctionScheme, serverCount);
+        idle = new Histogram(highestTrackableValue, significantDigits);
+        wait = new Histogram(highestTrackableValue, significantDigits);
+        dequeue = new Histogram(highestTrackableValue, significantDigits);
+        processing = new Histogram(highestTrackableValue, significantDigits);
+        grossProcessing = new Histogram(highestTrackableValue, significantDigits);
+        service = new Histogram(highestTrackableValue, significantDigits);
+        arrivalDiff = new Histogram(highestTrackableValue, significantDigits);
+        lateness = new Histogram(highestTrackableValue, significantDigits);
+        estimatedService = new Histogram(highestTrackableValue, significantDigits);
+    }
+
+    /**
+     * Adds the next request given by its arrival and start/finish time.
+     */
+    public void add(long arrival, long start, long finish) {
+        timings.next(arrival, start, finish);
+        record(timings, arrival, finish);
+    }
+
+    /**
+     * Adds the next request given by its arrival, measured enqueue/dequeue and start/finish time.
+     */
+    public void add(long arrival, long enqueue, long dequeue, long start, long finish) {
+        timings.next(arrival, enqueue, dequeue, start, finish);
+        record(timings, arrival, finish);
+    }
+
+    /**
+     * Records the timings of the current request, calculated by the given Timings.
+     */
+    void record(Timings timings, long arrival, long finish) {
+        idle.record(timings.getIdle());
+        wait.record(timings.getWait());
+        dequeue.record(timings.getDequeue());
+        processing.record(timings.getProcessing());
+        grossProcessing.record(timings.getGrossProcessing());
+        service.record(timings.getService());
+        lateness.record(timings.getLateness());
+        if (timings.hasArrivalDiff()) {
+            arrivalDiff.record(timings.getArrivalDiff());
+        }
+        if (timings.hasEstimatedService()) {
+            estimatedService.record(timings.getEstimatedService());
+        }
+
+        if (count == 0) { firstArrival = arrival; }
+        if (finish > lastFinish) { lastFinish = finish; }
+        count++;
+    }
+
+    /**
+     * Adds the histograms of the given period of the same benchmark to these ones.
+     */
+    public void add(BenchmarkHistograms other) {
+        if (other.count == 0) { return; }
+
+        idle.add(other.idle);
+        wait.add(other.wait);
+        dequeue.add(other.dequeue);
+        processing.add(other.processing);
+        grossProcessing.add(other.grossProcessing);
+        service.add(other.service);
+        arrivalDiff.add(other.arrivalDiff);
+        lateness.add(other.lateness);
+        estimatedService.add(other.estimatedService);
+
+        if (count == 0 || other.firstArrival < firstArrival) { firstArrival = other.firstArrival; }
+        if (other.lastFinish > lastFinish) { lastFinish = other.lastFinish; }
+        count += other.count;
+    }
+
+    /**
+     * Clears the histograms. The timings calculation is not affected, ie. the next request is still
+     * related to the previous one.
+     */
+    public void reset() {
+        idle.reset();
+        wait.reset();
+        dequeue.reset();
+        processing.reset();
+        grossProcessing.reset();
+        service.reset();
+        arrivalDiff.reset();
+        lateness.reset();
+        estimatedService.reset();
+
+        count = 0;
+        firstArrival = 0;
+        lastFinish = Long.MIN_VALUE;
+    }
+
+    /**
+     * Called when the recording is finished, before the histograms are read. Does nothing by
+     * default.
+     */
+    public void finish() {
+    }
+
+    /**
+     * Returns the first arrival.
+     */
+    public long getFirstArrival() {
+        return firstArrival;
+    }
+
+    /**
+     * Returns the last finish.
+     */
+    public long getLastFinish() {
+        return lastFinish;
+    }
+
+    /**
+     * Returns the number of requests added.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the time from the first arrival up to the last finish.
+     */
+    public long getDuration() {
+        return count > 0 ? lastFinish - firstArrival : 0;
+    }
+
+    public Histogram getIdle() {
+        return idle;
+    }
+
+    public Histogram getWait() {
+        return wait;
+    }
+
+    public Histogram getDequeue() {
+        return dequeue;
+    }
+
+    public Histogram getProcessing() {
+        return processing;
+    }
+
+    public Histogram getGrossProcessing() {
+        return grossProcessing;
+    }
+
+    public Histogram getService() {
+        return service;
+    }
+
+    public Histogram getArrivalDiff() {
+        return arrivalDiff;
+    }
+
+    public Histogram getLateness() {
+        return lateness;
+    }
+
+    /**
+     * Returns the histogram of the calculated service times. It is filled either while recording
+     * (see OnlineCorrectionScheme) or after the benchmark by BenchmarkRaw (see CorrectionScheme).
+     */
+    public Histogram getEstimatedService() {
+        return estimatedService;
+    }
+}
@@ -1,11 +1,12 @@
 package co.stat;
 
+import co.Benchmark;
 import co.Sys;
 
 /**
  * Handles indicators, ie. average/min/max/percentile time of idle, wait, dequeue, processing,
- * grossProcessing, service, arrival diff and also the calculated service time as per the paper. For
- * the latter see:
+ * grossProcessing, service, arrival diff, schedule lateness and also the calculated service time
+ * as per the paper. For the latter see:
  *
  * - CorrectionScheme
  * - <https://github.com/csomgyula/co/blob/master/paper.md>
@@ -13,7 +14,9 @@ import co.Sys;
  * FEATURES:
  *
  * - Calculate indicators
- * - Print out indicators (to console)
+ * - Optionally estimate their confidence intervals (see Bootstrap)
+ * - Print out indicators (to console), and those of the phases of a load profile (see
+ *   PhaseRecorder) and of the requests affected by GC pauses (see GcCorrelation)
  *
  * Each method is called by Stat
  */ 
@@ -22,7 +25,16 @@ public class BenchmarkIndicators {
 
     // indicators calculated by calculateIndicator
     private Indicator idle, wait, dequeue, processing, grossProcessing, service, arrivalDiff,
-        estimatedService;
+        lateness, estimatedService;
+
+    // achieved throughput in requests per second
+    private double throughput;
+
+    // estimates the confidence intervals, null if they are not estimated
+    private Bootstrap bootstrap;
+
+    // the requests split by the GC pauses, null if the pauses are not monitored
+    private GcCorrelation gcCorrelation;
 
     public BenchmarkIndicators(BenchmarkRaw raw) {
         this.raw = raw;
@@ -37,39 +49,99 @@ public class BenchmarkIndicators {
      * - grossProcessing
      * - service
      * - arrival diff
+     * - schedule lateness
      * - service times calculated from arrivals and processing times
      *
-     * See Raw.calculateTimings() for more details and especially for the latter see:
+     * and the achieved throughput, ie. the number of requests per second from the first arrival up
+     * to the last finish.
+     *
+     * See Timings for more details and especially for the latter see:
      *
      * - CorrectionScheme
      * - <https://github.com/csomgyula/co/blob/master/paper.md>
      */
     public void calculate() {
-        idle = new Indicator("idle time", raw.getIdles());
-        wait = new Indicator("wait time", raw.getWaits());
-        dequeue = new Indicator("dequeue time", raw.getDequeues());
-        processing = new Indicator("processing time", raw.getProcessings());
-        grossProcessing = new Indicator("gross processing time", raw.getGrossProcessings());
-        service = new Indicator("service time", raw.getServices());
-        arrivalDiff = new Indicator("arrival diff", raw.getArrivalDiffs());
+        BenchmarkHistograms histograms = raw.getHistograms();
+        idle = new Indicator("idle time", histograms.getIdle());
+        wait = new Indicator("wait time", histograms.getWait());
+        dequeue = new Indicator("dequeue time", histograms.getDequeue());
+        processing = new Indicator("processing time", histograms.getProcessing());
+        grossProcessing = new Indicator("gross processing time", histograms.getGrossProcessing());
+        service = new Indicator("service time", histograms.getService());
+        arrivalDiff = new Indicator("arrival diff", histograms.getArrivalDiff());
+        lateness = new Indicator("schedule lateness", histograms.getLateness());
         estimatedService = new Indicator("calculated service time",
-                raw.getEstimatedServices());
+                histograms.getEstimatedService());
+        throughput = histograms.getDuration() > 0 ?
+                histograms.getCount() * 1_000_000_000d / histograms.getDuration() : 0;
+
+        Benchmark.Recording recording = raw.getRecording();
+        if (recording.getGcMonitor() != null && recording.isKept()) {
+            gcCorrelation = new GcCorrelation(recording, recording.getGcMonitor());
+        }
+
+        if (bootstrap != null) {
+            for (Indicator indicator : new Indicator[] { idle, wait, dequeue, processing,
+                    grossProcessing, service, arrivalDiff, lateness, estimatedService }) {
+                indicator.calculateConfidenceIntervals(bootstrap);
+            }
+        }
     }
 
     public void printOut() {
         String sep = "---------------------------------------------------------------------" +
                 "------------------------------------------------";
-        Sys.printlnOut("Indicators:");
+        Sys.printlnOut(bootstrap == null ? "Indicators:" : String.format(
+                "Indicators (%.0f%% confidence intervals in brackets, %d bootstrap resamples):",
+                bootstrap.getConfidence() * 100, bootstrap.getResampleCount()));
         Sys.printlnOut("  " + service);
         Sys.printlnOut("  " + estimatedService);
         Sys.printlnOut("  " + processing);
         Sys.printlnOut(sep);
         Sys.printlnOut("  " + arrivalDiff);
+        Sys.printlnOut("  " + lateness);
         Sys.printlnOut("  " + grossProcessing);
         Sys.printlnOut(sep);
         Sys.printlnOut("  " + idle);
         Sys.printlnOut("  " + wait);
         Sys.printlnOut("  " + dequeue);
+        Sys.printlnOut(sep);
+        Sys.printlnOut(String.format("  %25s: %f requests/s", "throughput", throughput));
+
+        Calibration calibration = raw.getRecording().getCalibration();
+        if (calibration != null) {
+            Sys.printlnOut(String.format("  %25s: %s%s", "harness overhead", calibration,
+                    raw.getRecording().isOverheadCorrected() ? " (subtracted)" : ""));
+        }
+
+        GcMonitor gcMonitor = raw.getRecording().getGcMonitor();
+        if (gcCorrelation != null) {
+            Sys.printlnOut(sep);
+            gcCorrelation.printOut();
+        }
+        else if (gcMonitor != null) {
+            Sys.printlnOut(sep);
+            Sys.printlnOut(String.format("GC: %d pauses, %f ms in total",
+                    gcMonitor.getPauseCount(),
+                    gcMonitor.getPauseTimeNs(Long.MIN_VALUE, Long.MAX_VALUE) / 1_000_000d));
+        }
+
+        if (raw.getHistograms() instanceof PhaseRecorder) {
+            Sys.printlnOut(sep);
+            ((PhaseRecorder) raw.getHistograms()).printOut(gcMonitor);
+        }
+    }
+
+    /**
+     * Sets the bootstrap estimating the confidence intervals of the indicators, null (default)
+     * disables the estimation.
+     */
+    public void setBootstrap(Bootstrap bootstrap) {
+        this.bootstrap = bootstrap;
+    }
+
+    public Bootstrap getBootstrap() {
+        return bootstrap;
     }
 
     public Indicator getIdle() {
@@ -100,7 +172,22 @@ public class BenchmarkIndicators {
         return arrivalDiff;
     }
 
+    public Indicator getLateness() {
+        return lateness;
+    }
+
     public Indicator getEstimatedService() {
         return estimatedService;
     }
+
+    public double getThroughput() {
+        return throughput;
+    }
+
+    /**
+     * Returns the requests split by the GC pauses, null if the pauses are not monitored.
+     */
+    public GcCorrelation getGcCorrelation() {
+        return gcCorrelation;
+    }
 }
\ No newline at end of file
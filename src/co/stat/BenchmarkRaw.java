@@ -3,209 +3,118 @@ package co.stat;
 import co.Benchmark;
 import co.Sys;
 
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.UncheckedIOException;
 
 /**
  * Handles raw statistics.
  *
  * FEATURES:
  *
- * - Calculates various timings: idle, wait, dequeue, processing, grossProcessing, service, arrival
- *   diff time and calculated service time as per the correction scheme proposed in the paper
- * - Writes the data out to a CSV file, for further analysis
+ * - Provides the histograms of various timings: idle, wait, dequeue, processing, grossProcessing,
+ *   service, arrival diff, schedule lateness time (see Timings) and calculated service time as per
+ *   the correction scheme proposed in the paper
+ * - Writes the data out to a binary (see RawFile) or CSV file, for further analysis
  *
  * Each method is called by Stat
  */
 public class BenchmarkRaw {
     private Benchmark.Recording recording;
 
-    // statistics calculated by calculateTimings
-    private List<Long> idles, waits, dequeues, processings, grossProcessings,
-            services, arrivalDiffs, estimatedServices;
+    // histograms of the timings, updated while recording or calculated by calculate
+    private BenchmarkHistograms histograms;
 
     public BenchmarkRaw(Benchmark.Recording recording) {
         this.recording = recording;
     }
 
     /**
-     * Calculate the following times: idle, wait, dequeue, (gross)processing, service, arrival diff,
-     * where:
+     * Calculates the histograms of the following times: idle, wait, dequeue, (gross)processing,
+     * service, arrival diff, schedule lateness (see Timings for the definitions) and calculated
+     * service time.
      *
-     * idle time is the period during the request is not processed, formally:
-     *
-     *      idle = start - arrival
-     *
-     * dequeue is the time necessary to dequeue the request and start its processing, formally:
-     *
-     *                start - previous finish time : if the request is already in the queue when
-     *                                               the previous request finished
-     *      dequeue =
-     *                start - arrival time : if the request arrived later then the finish of the
-     *                                       previous request
-     *
-     * wait is the time while the request is in the queue:
-     *
-     *      wait = idle - dequeue
-     *
-     * processing is the active processing time of the request:
-     *
-     *      processing = finish - start
-     *
-     * grossProcessing is the active processing time of the request plus dequeue time:
-     *
-     *      grossProcessing = processing + dequeue
-     *
-     * service is the total service time starting from arrival up to finish:
-     *
-     *      service = finish - arrival
-     *
-     * arrival diff is the time diff between two consecutive requests, that is:
-     *
-     *      arrival diff = arrival - previous arrival
+     * If the recording updated the histograms while recording (including the calculated service
+     * time, see OnlineCorrectionScheme), they are used as is, otherwise the recorded timings are
+     * replayed and the calculated service times are calculated by CorrectionScheme.
      */
     public void calculate() {
-        List<Long> arrivalList = recording.getArrivals(), startList = recording.getStarts(),
-                finishList = recording.getFinishList();
-        idles = new ArrayList<>();
-        waits = new ArrayList<>();
-        dequeues = new ArrayList<>();
-        processings = new ArrayList<>();
-        grossProcessings = new ArrayList<>();
-        services = new ArrayList<>();
-        arrivalDiffs = new ArrayList<>();
-
-        long arrival, prevArrival = 0, arrivalDiff = 0, start, finish = Long.MIN_VALUE, prevFinish,
-                idle, wait, dequeue, processing, grossProcessing, total;
-
-        int statCount = arrivalList.size();
-        for (int i = 0; i < statCount; i++) {
-            // get recorded times
-            arrival = arrivalList.get(i);
-            start = startList.get(i);
-            prevFinish = finish;
-            finish = finishList.get(i);
-
-            // calculate times
-            idle = start - arrival;
-            if (i == 0) {
-                dequeue = start - arrival;
-            }
-            else {
-                arrivalDiff = arrival - prevArrival;
-                dequeue = start - (prevFinish > arrival ? prevFinish : arrival);
+        histograms = recording.getHistograms();
+        if (histograms == null) {
+            histograms = new BenchmarkHistograms(null, recording.getServerCount());
+
+            int statCount = recording.size();
+            boolean queueTimings = recording.hasQueueTimings();
+            for (int i = 0; i < statCount; i++) {
+                if (queueTimings) {
+                    histograms.add(recording.getArrival(i), recording.getEnqueue(i),
+                            recording.getDequeue(i), recording.getStart(i), recording.getFinish(i));
+                }
+                else {
+                    histograms.add(recording.getArrival(i), recording.getStart(i),
+                            recording.getFinish(i));
+                }
             }
-            prevArrival = arrival;
-            wait = idle - dequeue;
-            processing = finish - start;
-            grossProcessing = processing + dequeue;
-            total = idle + processing;
-
-            // store new stats
-            idles.add(idle);
-            waits.add(wait);
-            dequeues.add(dequeue);
-            processings.add(processing);
-            grossProcessings.add(grossProcessing);
-            services.add(total);
-            if (i > 0)
-                arrivalDiffs.add(arrivalDiff);
-        }
 
-        calculateEstimatedServices();
+            calculateEstimatedServices();
+        }
     }
 
     /**
      * Calculated service times from arrival- and processing times by the correction scheme
-     * proposed in the paper. See:
+     * proposed in the paper (generalized to the number of servers of the recording). See:
      *
      * - CorrectionScheme
      * - <https://github.com/csomgyula/co/blob/master/paper.md>
      */
     protected void calculateEstimatedServices() {
-        estimatedServices = new CorrectionScheme().estimateServiceTimes(
-                recording.getArrivals(), getProcessings());
+        int statCount = recording.size();
+        long[] processings = new long[statCount];
+        for (int i = 0; i < statCount; i++) {
+            processings[i] = recording.getFinish(i) - recording.getStart(i);
+        }
+
+        long[] estimatedServices = new CorrectionScheme().estimateServiceTimes(
+                recording.getArrivals(), processings, recording.getServerCount());
+
+        Histogram estimatedService = histograms.getEstimatedService();
+        for (long value : estimatedServices) {
+            estimatedService.record(value);
+        }
     }
 
     /**
-     * Writes statistics to the given CSV file.
+     * Writes statistics to the given CSV file. The timings are calculated on the fly, row by row.
      */
     public void toCSV(String path) {
-        File csvFile = new File(path);
-        List<Long> arrivalList = recording.getArrivals(), startList = recording.getStarts(),
-                finishList = recording.getFinishList();
-
-        try (
-                FileWriter fileWriter = new FileWriter(csvFile);
-                BufferedWriter bufferedWriter = new BufferedWriter(fileWriter)
-        ) {
-            bufferedWriter.write(
-                    "arrival;start;finish;idle;wait;dequeue;processing;grossProcessing;service");
-            bufferedWriter.newLine();
-            int statCount = arrivalList.size();
-            long arrival, start, finish, idle, wait, dequeue, processing, grossProcessing, total;
-            for (int i = 0; i < statCount; i++) {
-                arrival = arrivalList.get(i) - Sys.TIME_ZERO;
-                start = startList.get(i) - Sys.TIME_ZERO;
-                finish = finishList.get(i) - Sys.TIME_ZERO;
-                idle = idles.get(i);
-                dequeue = dequeues.get(i);
-                wait = waits.get(i);
-                processing = processings.get(i);
-                grossProcessing = grossProcessings.get(i);
-                total = services.get(i);
-
-                String timingsString =
-                        String.format("%d;%d;%d;%d;%d;%d;%d;%d;%d", arrival, start, finish, idle, wait,
-                                dequeue, processing, grossProcessing, total);
-                bufferedWriter.write(timingsString);
-                bufferedWriter.newLine();
-            }
+        try {
+            RawFile.toCSV(recording, path);
         }
-        catch (IOException e) {
+        catch (UncheckedIOException e) {
             Sys.debug(e.getMessage());
         }
 
         Sys.printlnOut("Raw stat written to " + path);
     }
 
-    public Benchmark.Recording getRecording() {
-        return recording;
-    }
-
-    public List<Long> getIdles() {
-        return idles;
-    }
-
-    public List<Long> getWaits() {
-        return waits;
-    }
-
-    public List<Long> getDequeues() {
-        return dequeues;
-    }
-
-    public List<Long> getProcessings() {
-        return processings;
-    }
-
-    public List<Long> getGrossProcessings() {
-        return grossProcessings;
-    }
+    /**
+     * Writes the recorded timings to the given file in the compact binary format of RawFile. It can
+     * be converted to CSV by RawFile.main.
+     */
+    public void toBinary(String path) {
+        try {
+            RawFile.write(recording, path);
+        }
+        catch (UncheckedIOException e) {
+            Sys.debug(e.getMessage());
+        }
 
-    public List<Long> getServices() {
-        return services;
+        Sys.printlnOut("Raw stat written to " + path);
     }
 
-    public List<Long> getArrivalDiffs() {
-        return arrivalDiffs;
+    public Benchmark.Recording getRecording() {
+        return recording;
     }
 
-    public List<Long> getEstimatedServices() {
-        return estimatedServices;
+    public BenchmarkHistograms getHistograms() {
+        return histograms;
     }
-}
\ No newline at end of file
+}
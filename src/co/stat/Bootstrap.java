@@ -0,0 +1,205 @@
+package co.stat;
+
+import co.Sys;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Estimates confidence intervals of percentiles and the mean of a sample by bootstrap
+ * resampling[1].
+ *
+ * PROCESS: The sample is given by a Histogram, hence a resample is drawn over its non-empty
+ * sub-buckets instead of the individual values: each value is drawn a Poisson(1) number of times
+ * (Poisson bootstrap[2]), so the count of a sub-bucket of n values is drawn from Poisson(n). The
+ * cost of a resample depends only on the number of non-empty sub-buckets, not on the sample size.
+ * Resamples are drawn in parallel (fork-join common pool), each one by its own SplittableRandom
+ * split from the seed, so the result does not depend on the parallelism. The interval is given by
+ * the percentiles of the resampled estimates.
+ *
+ * NOTES:
+ *
+ * - Percentiles are resampled at the precision of the histogram
+ * - The mean is resampled over the sub-bucket values and shifted by the difference between the
+ *   exact mean and the mean of the sub-bucket values
+ * - Poisson counts above POISSON_NORMAL_THRESHOLD are drawn from the normal approximation
+ *
+ * RELATIONS:
+ *
+ * - Used by Indicator when BenchmarkIndicators is configured with a Bootstrap (see Stat)
+ *
+ * References:
+ *
+ * - [1] Efron, B.: Bootstrap Methods: Another Look at the Jackknife, 1979
+ * - [2] Hanley, J. A., MacGibbon, B.: Creating non-parametric bootstrap samples using Poisson
+ *   frequencies, 2006
+ */
+public class Bootstrap {
+    private static final long POISSON_NORMAL_THRESHOLD = 30;
+
+    private final int resampleCount;
+    private final double confidence;
+    private final long seed;
+
+    /**
+     * Initializes the bootstrap with 1000 resamples and 95% confidence.
+     */
+    public Bootstrap() {
+        this(1000, 0.95);
+    }
+
+    /**
+     * Initializes the bootstrap with the given number of resamples and confidence level (0..1),
+     * seeded by the current time.
+     */
+    public Bootstrap(int resampleCount, double confidence) {
+        this(resampleCount, confidence, System.nanoTime());
+    }
+
+    /**
+     * Initializes the bootstrap with the given number of resamples, confidence level (0..1) and
+     * seed, hence the results are reproducible.
+     */
+    public Bootstrap(int resampleCount, double confidence, long seed) {
+        Sys.assertTrue(resampleCount > 0 && confidence > 0 && confidence < 1);
+
+        this.resampleCount = resampleCount;
+        this.confidence = confidence;
+        this.seed = seed;
+    }
+
+    /**
+     * Returns the confidence intervals of the given percentiles (0..100) of the sample, followed by
+     * the confidence interval of the mean. Returns null if the sample is empty.
+     */
+    public ConfidenceInterval[] estimate(Histogram histogram, double... percentiles) {
+        if (histogram.getTotalCount() == 0) { return null; }
+
+        // the non-empty sub-buckets
+        int length = histogram.getCountsLength(), bucketCount = 0;
+        for (int i = 0; i < length; i++) {
+            if (histogram.getCountAtIndex(i) > 0) { bucketCount++; }
+        }
+        long[] counts = new long[bucketCount], values = new long[bucketCount];
+        double bucketSum = 0;
+        long min = histogram.getMin(), max = histogram.getMax();
+        for (int i = 0, j = 0; i < length; i++) {
+            long count = histogram.getCountAtIndex(i);
+            if (count > 0) {
+                counts[j] = count;
+                // the same value as Histogram.getValueAtPercentile returns
+                values[j] = Math.max(Math.min(
+                        histogram.highestEquivalentValue(histogram.valueFromIndex(i)), max), min);
+                bucketSum += (double) values[j] * count;
+                j++;
+            }
+        }
+        double meanShift = histogram.getMean() - bucketSum / histogram.getTotalCount();
+
+        // per sub-bucket constants of the Poisson draws: exp(-count) or sqrt(count)
+        double[] poissonParameters = new double[bucketCount];
+        for (int j = 0; j < bucketCount; j++) {
+            poissonParameters[j] = counts[j] < POISSON_NORMAL_THRESHOLD ?
+                    Math.exp(-counts[j]) : Math.sqrt(counts[j]);
+        }
+
+        // independent generators for each resample
+        SplittableRandom[] randoms = new SplittableRandom[resampleCount];
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int r = 0; r < resampleCount; r++) {
+            randoms[r] = random.split();
+        }
+
+        // estimates[k][r]: the kth indicator of the rth resample, the last one is the mean
+        int indicatorCount = percentiles.length + 1;
+        double[][] estimates = new double[indicatorCount][resampleCount];
+        IntStream.range(0, resampleCount).parallel().forEach(r -> {
+            long[] resampled = new long[counts.length];
+            long totalCount = 0;
+            double sum = 0;
+            for (int j = 0; j < counts.length; j++) {
+                resampled[j] = poisson(randoms[r], counts[j], poissonParameters[j]);
+                totalCount += resampled[j];
+                sum += (double) values[j] * resampled[j];
+            }
+            for (int k = 0; k < percentiles.length; k++) {
+                estimates[k][r] = valueAtPercentile(values, resampled, totalCount, percentiles[k]);
+            }
+            estimates[percentiles.length][r] =
+                    (totalCount > 0 ? sum / totalCount : histogram.getMean()) + meanShift;
+        });
+
+        ConfidenceInterval[] intervals = new ConfidenceInterval[indicatorCount];
+        double alpha = (1 - confidence) / 2;
+        for (int k = 0; k < indicatorCount; k++) {
+            Arrays.sort(estimates[k]);
+            intervals[k] = new ConfidenceInterval(quantile(estimates[k], alpha),
+                    quantile(estimates[k], 1 - alpha), confidence);
+        }
+        return intervals;
+    }
+
+    /**
+     * Returns the value at the given percentile of the resampled sub-buckets (see
+     * Histogram.getValueAtPercentile).
+     */
+    private static long valueAtPercentile(long[] values, long[] counts, long totalCount,
+                                          double percentile) {
+        if (totalCount == 0) { return 0; }
+
+        double percentage = Math.min(Math.max(percentile, 0), 100);
+        long countAtPercentile = Math.max(1, (long) Math.ceil(percentage / 100 * totalCount));
+        long cumulativeCount = 0;
+        for (int j = 0; j < counts.length; j++) {
+            cumulativeCount += counts[j];
+            if (cumulativeCount >= countAtPercentile) {
+                return values[j];
+            }
+        }
+        return values[values.length - 1];
+    }
+
+    /**
+     * Returns the value at the given quantile (0..1) of the sorted estimates.
+     */
+    private static double quantile(double[] sorted, double quantile) {
+        int index = (int) Math.round(quantile * (sorted.length - 1));
+        return sorted[index];
+    }
+
+    /**
+     * Draws a Poisson distributed number with the given mean: by multiplying uniform numbers
+     * (Knuth) for small means, by the normal approximation otherwise. The parameter is exp(-mean)
+     * in the former case, sqrt(mean) in the latter.
+     */
+    private static long poisson(SplittableRandom random, long mean, double parameter) {
+        if (mean < POISSON_NORMAL_THRESHOLD) {
+            double product = random.nextDouble();
+            long count = 0;
+            while (product > parameter) {
+                product *= random.nextDouble();
+                count++;
+            }
+            return count;
+        }
+
+        // Marsaglia polar method
+        double u, v, s;
+        do {
+            u = 2 * random.nextDouble() - 1;
+            v = 2 * random.nextDouble() - 1;
+            s = u * u + v * v;
+        } while (s >= 1 || s == 0);
+        double gaussian = u * Math.sqrt(-2 * Math.log(s) / s);
+        return Math.max(0, Math.round(mean + parameter * gaussian));
+    }
+
+    public int getResampleCount() {
+        return resampleCount;
+    }
+
+    public double getConfidence() {
+        return confidence;
+    }
+}
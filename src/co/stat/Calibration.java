@@ -0,0 +1,153 @@
+package co.stat;
+
+import co.Benchmark;
+import co.Blackhole;
+import co.Sys;
+import co.Task;
+
+/**
+ * Measures the overhead of the harness itself, ie. the cost of the measure/record path of the
+ * benchmark loop, so that it can be compared to (or subtracted from) the processing times of very
+ * short tasks (see the Counter task).
+ *
+ * The following is measured:
+ *
+ * - clock resolution: the smallest positive difference between two consecutive System.nanoTime
+ *   calls
+ * - clock latency: the average cost of a System.nanoTime call
+ * - measure overhead: the median processing time the benchmark loop measures for an empty task,
+ *   ie. the part of every measured processing time which is due to the harness. The empty task
+ *   passes a primitive to the Blackhole, as the built-in tasks do (see Task.execute(Blackhole)),
+ *   tasks returning an object to the Blackhole have a somewhat higher overhead
+ * - recording overhead: the average cost of recording a request into a histograms only recording
+ *   (the default, see Benchmark.Recording)
+ *
+ * RELATIONS:
+ *
+ * - Calibrated by Benchmark before the warm up, attached to the Recording and printed out by
+ *   BenchmarkIndicators
+ * - If overhead correction is enabled (see Benchmark.setOverheadCorrection), the Recording
+ *   subtracts the measure overhead from the processing times
+ */
+public class Calibration {
+    private static final int DEFAULT_SAMPLE_COUNT = 200_000;
+
+    private long clockResolutionNs, measureOverheadNs;
+    private double clockLatencyNs, recordingOverheadNs;
+
+    // guards against dead code elimination (see Task)
+    private final Blackhole blackhole = new Blackhole();
+
+    /**
+     * Calibrates with the default number of samples.
+     */
+    public static Calibration calibrate() {
+        return calibrate(DEFAULT_SAMPLE_COUNT);
+    }
+
+    /**
+     * Calibrates with the given number of samples for each measurement.
+     */
+    public static Calibration calibrate(int sampleCount) {
+        Sys.assertTrue(sampleCount > 0);
+
+        Calibration calibration = new Calibration();
+        // twice: the first round warms up the measured code paths
+        for (int round = 0; round < 2; round++) {
+            calibration.measureClock(sampleCount);
+            calibration.measureOverheads(sampleCount);
+        }
+        return calibration;
+    }
+
+    private void measureClock(int sampleCount) {
+        // latency
+        long sum = 0;
+        long started = System.nanoTime();
+        for (int i = 0; i < sampleCount; i++) {
+            sum += System.nanoTime();
+        }
+        long finished = System.nanoTime();
+        clockLatencyNs = (double) (finished - started) / sampleCount;
+        blackhole.consume(sum);
+
+        // resolution
+        long resolution = Long.MAX_VALUE, previous, current;
+        for (int i = 0; i < Math.min(sampleCount, 10_000); i++) {
+            previous = System.nanoTime();
+            while ((current = System.nanoTime()) == previous) { }
+            if (current - previous < resolution) { resolution = current - previous; }
+        }
+        clockResolutionNs = resolution;
+    }
+
+    private void measureOverheads(int sampleCount) {
+        Task task = new EmptyTask();
+
+        // measure: the same as the benchmark loop
+        Histogram measured = new Histogram();
+        long startedNs, finishedNs;
+        for (int i = 0; i < sampleCount; i++) {
+            startedNs = System.nanoTime();
+            task.execute(blackhole);
+            finishedNs = System.nanoTime();
+            measured.record(finishedNs - startedNs);
+        }
+        measureOverheadNs = measured.getValueAtPercentile(50);
+
+        // record
+        Benchmark.Recording recording = new Benchmark.Recording(0, false,
+                new BenchmarkHistograms(new OnlineCorrectionScheme()));
+        long time = System.nanoTime();
+        long started = System.nanoTime();
+        for (int i = 0; i < sampleCount; i++) {
+            time += 1000;
+            recording.add(time, time + 50, time + 250);
+        }
+        long finished = System.nanoTime();
+        recordingOverheadNs = (double) (finished - started) / sampleCount;
+    }
+
+    public long getClockResolutionNs() {
+        return clockResolutionNs;
+    }
+
+    public double getClockLatencyNs() {
+        return clockLatencyNs;
+    }
+
+    /**
+     * Returns the median processing time measured for an empty task.
+     */
+    public long getMeasureOverheadNs() {
+        return measureOverheadNs;
+    }
+
+    public double getRecordingOverheadNs() {
+        return recordingOverheadNs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("clock resolution: %d ns, clock latency: %.1f ns, " +
+                        "measure overhead: %d ns, recording overhead: %.1f ns",
+                clockResolutionNs, clockLatencyNs, measureOverheadNs, recordingOverheadNs);
+    }
+
+    /**
+     * A task that does nothing but passes a primitive to the Blackhole.
+     */
+    private static class EmptyTask implements Task {
+        private long value;
+
+        @Override
+        public Object execute() {
+            return value;
+        }
+
+        @Override
+        public void execute(Blackhole blackhole) {
+            blackhole.consume(value);
+        }
+    }
+}
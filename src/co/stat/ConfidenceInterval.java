@@ -0,0 +1,44 @@
+package co.stat;
+
+/**
+ * Struct that holds a confidence interval of an indicator, eg. the 95% confidence interval of the
+ * 99th percentile (see Bootstrap).
+ */
+public class ConfidenceInterval {
+    private double lower, upper;
+    private double confidence;
+
+    public ConfidenceInterval(double lower, double upper, double confidence) {
+        this.lower = lower;
+        this.upper = upper;
+        this.confidence = confidence;
+    }
+
+    public double getLower() {
+        return lower;
+    }
+
+    public double getUpper() {
+        return upper;
+    }
+
+    /**
+     * Returns the confidence level (0..1), eg. 0.95.
+     */
+    public double getConfidence() {
+        return confidence;
+    }
+
+    /**
+     * Returns true if the given value is within the interval.
+     */
+    public boolean contains(double value) {
+        return lower <= value && value <= upper;
+    }
+
+    @Override
+    public String toString() {
+        int MILLION = 1_000_000;
+        return String.format("[%f, %f]", lower / MILLION, upper / MILLION);
+    }
+}
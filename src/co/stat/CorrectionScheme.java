@@ -2,8 +2,9 @@ package co.stat;
 
 import co.Sys;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 /**
  * The correction scheme proposed in the paper.
@@ -13,31 +14,60 @@ import java.util.List;
  * FEATURES:
  *
  * - Calculates estimated service times by the algorithm proposed in the paper (called by Stat)
+ * - Generalizes the algorithm to a queue served by multiple servers (first come first served)
+ * - Extends the algorithm to a tandem of stages (pipeline)
+ * - Calculates the start times of large samples by a parallel prefix scan
  */
 public class CorrectionScheme {
+    /**
+     * The sample size from which the start times are calculated in parallel.
+     */
+    public static final int PARALLEL_THRESHOLD = 1 << 20;
+
+    // the minimum number of requests scanned by a single task
+    private static final int MIN_CHUNK_SIZE = 1 << 16;
 
     /**
      * Implements the correction scheme proposed in the paper. Estimates service times from arrival,
      * and processing times.
      */
-     public List<Long> estimateServiceTimes(List<Long> arrivalTimes, List<Long> processingTimes) {
-         int size = arrivalTimes.size();
-         Sys.assertTrue(size == processingTimes.size());
+     public long[] estimateServiceTimes(long[] arrivalTimes, long[] processingTimes) {
+         int size = arrivalTimes.length;
+         Sys.assertTrue(size == processingTimes.length);
 
-         List<Long> startTimes = startTimes(arrivalTimes, null, 0, processingTimes);
+         long[] startTimes = startTimes(arrivalTimes, null, 0, processingTimes);
 
          return serviceTimes(arrivalTimes, startTimes, processingTimes);
     }
 
+    /**
+     * Implements the correction scheme for a single queue served by the given number of servers.
+     * Each request is assumed to start when it arrives or when the earliest server becomes free,
+     * whichever is later.
+     */
+    public long[] estimateServiceTimes(long[] arrivalTimes, long[] processingTimes,
+                                       int serverCount) {
+        int size = arrivalTimes.length;
+        Sys.assertTrue(size == processingTimes.length && serverCount > 0);
+
+        if (serverCount == 1) {
+            return estimateServiceTimes(arrivalTimes, processingTimes);
+        }
+
+        long[] startTimes = startTimes(arrivalTimes, serverCount, processingTimes);
+
+        return serviceTimes(arrivalTimes, startTimes, processingTimes);
+    }
+
     /**
      * Implements the correction scheme when an upper bound is known for the dequeue times.
      */
-    public List<Long> estimateServiceTimes(List<Long> arrivalTimes, long maxDequeueTime,
-                                           List<Long> processingTimes) {
-        int size = arrivalTimes.size();
-        Sys.assertTrue(size == processingTimes.size());
+    public long[] estimateServiceTimes(long[] arrivalTimes, long maxDequeueTime,
+                                           long[] processingTimes) {
+        int size = arrivalTimes.length;
+        Sys.assertTrue(size == processingTimes.length);
 
-        List<Long> startTimes = startTimes(arrivalTimes, null, maxDequeueTime,
+        long[] startTimes = startTimes(arrivalTimes, null, maxDequeueTime,
                 processingTimes);
 
         return serviceTimes(arrivalTimes, startTimes, processingTimes);
@@ -47,28 +77,78 @@ public class CorrectionScheme {
      * Implements a correction scheme when besides arrivals and processing times, dequeue times are
      * known as well.
      */
-    public List<Long> calculateServiceTimes(List<Long> arrivalTimes, List<Long> dequeueTimes,
-                                            List<Long> processingTimes) {
-        int size = arrivalTimes.size();
-        Sys.assertTrue(size == dequeueTimes.size() && size == processingTimes.size());
+    public long[] calculateServiceTimes(long[] arrivalTimes, long[] dequeueTimes,
+                                            long[] processingTimes) {
+        int size = arrivalTimes.length;
+        Sys.assertTrue(size == dequeueTimes.length && size == processingTimes.length);
 
-        List<Long> startTimes = startTimes(arrivalTimes, dequeueTimes, 0, processingTimes);
+        long[] startTimes = startTimes(arrivalTimes, dequeueTimes, 0, processingTimes);
 
         return serviceTimes(arrivalTimes, startTimes, processingTimes);
     }
 
+    /**
+     * Extends the correction scheme to a tandem of stages (pipeline): each request is processed by
+     * the stages one after the other, each stage has its own queue served by the given number of
+     * servers. Estimates the end-to-end service times from the arrivals and the processing times at
+     * each stage (processingTimes[stage][request]).
+     *
+     * The requests arrive at the first stage at their arrival time and at the next stages when
+     * they finish at the previous one. Each stage is estimated as a single queue, that is:
+     *
+     *      arrival[0][i] = arrival[i]
+     *      start[s][i] = estimated start by the single queue scheme, from arrival[s] and
+     *                    processing[s]
+     *      finish[s][i] = start[s][i] + processing[s][i]
+     *      arrival[s+1][i] = finish[s][i]
+     *
+     *      service[i] = finish[last][i] - arrival[i]
+     *
+     * NOTES:
+     *
+     * - Each stage serves the requests in the order of their arrival (at the benchmark)
+     * - The queues between the stages are assumed to be unbounded, ie. blocking due to
+     *   backpressure is not estimated
+     */
+    public long[] estimateTandemServiceTimes(long[] arrivalTimes, long[][] processingTimes,
+                                             int[] serverCounts) {
+        int size = arrivalTimes.length;
+        Sys.assertTrue(processingTimes.length > 0 && processingTimes.length == serverCounts.length);
+
+        long[] stageArrivalTimes = arrivalTimes, startTimes, finishTimes = arrivalTimes;
+        for (int s = 0; s < processingTimes.length; s++) {
+            Sys.assertTrue(processingTimes[s].length == size && serverCounts[s] > 0);
+            if (size == 0) { break; }
+
+            startTimes = serverCounts[s] == 1 ?
+                    startTimes(stageArrivalTimes, null, 0, processingTimes[s]) :
+                    startTimes(stageArrivalTimes, serverCounts[s], processingTimes[s]);
+            finishTimes = new long[size];
+            for (int i = 0; i < size; i++) {
+                finishTimes[i] = startTimes[i] + processingTimes[s][i];
+            }
+            stageArrivalTimes = finishTimes;
+        }
+
+        long[] serviceTimes = new long[size > 0 ? size - 1 : 0];
+        for (int i = 1; i < size; i++) {
+            serviceTimes[i - 1] = finishTimes[i] - arrivalTimes[i];
+        }
+        return serviceTimes;
+    }
+
     /**
      * Calculates the service time from arrivals, starts and processing times.
      */
-    protected List<Long> serviceTimes(List<Long> arrivalTimes, List<Long> startTimes,
-                                   List<Long> processingTimes) {
-        int size = arrivalTimes.size();
-        List<Long> serviceTimes = new ArrayList<>();
+    protected long[] serviceTimes(long[] arrivalTimes, long[] startTimes,
+                                   long[] processingTimes) {
+        int size = arrivalTimes.length;
+        long[] serviceTimes = new long[size > 0 ? size - 1 : 0];
         long serviceTime;
         for (int i = 1; i < size; i++) {
-            serviceTime = startTimes.get(i) - arrivalTimes.get(i)
-                    + processingTimes.get(i);
-            serviceTimes.add(serviceTime);
+            serviceTime = startTimes[i] - arrivalTimes[i]
+                    + processingTimes[i];
+            serviceTimes[i - 1] = serviceTime;
         }
         return serviceTimes;
     }
@@ -79,30 +159,150 @@ public class CorrectionScheme {
      * - neither dequeue times nor an upper bound is known
      * - an upper bound for dequeue times is known
      * - dequeue times are known
+     *
+     * Large samples (see PARALLEL_THRESHOLD) are calculated by parallelStartTimes.
      */
-    protected List<Long> startTimes(List<Long> arrivalTimes, List<Long> dequeueTimes,
+    protected long[] startTimes(long[] arrivalTimes, long[] dequeueTimes,
                                     long maxDequeueTime,
-                                    List<Long> processingTimes) {
-        int size = arrivalTimes.size();
+                                    long[] processingTimes) {
+        if (arrivalTimes.length >= PARALLEL_THRESHOLD) {
+            return parallelStartTimes(arrivalTimes, dequeueTimes, maxDequeueTime, processingTimes);
+        }
+
+        int size = arrivalTimes.length;
+
+        long[] startTimes = new long[size];
+        startTimes[0] = arrivalTimes[0];
+        scan(arrivalTimes, dequeueTimes, maxDequeueTime, processingTimes, startTimes,
+                startTimes[0], 1, size);
+
+        return startTimes;
+    }
+
+    /**
+     * Calculates the same start times as the sequential algorithm, bit by bit, by a parallel
+     * prefix scan on the fork-join pool.
+     *
+     * The recursion
+     *
+     *      start[i] = max(start[i-1] + processing[i-1], arrival[i]) + dequeue[i]
+     *
+     * can be written as start[i] = f[i](start[i-1]) where
+     *
+     *      f[i](x) = max(x + c[i], b[i]),  c[i] = processing[i-1] + dequeue[i],
+     *                                      b[i] = arrival[i] + dequeue[i]
+     *
+     * Functions of this form are closed under composition (max-plus algebra):
+     *
+     *      f[j](f[i](x)) = max(x + c[i] + c[j], max(b[i] + c[j], b[j]))
+     *
+     * hence the sample is split into chunks, the composed function of each chunk is calculated in
+     * parallel, then the start time before each chunk is calculated sequentially from these
+     * functions, finally each chunk is scanned in parallel by the sequential algorithm. All the
+     * operations are exact integer operations, so the result is identical to the sequential one.
+     */
+    protected long[] parallelStartTimes(long[] arrivalTimes, long[] dequeueTimes,
+                                        long maxDequeueTime, long[] processingTimes) {
+        int size = arrivalTimes.length;
+
+        long[] startTimes = new long[size];
+        startTimes[0] = arrivalTimes[0];
 
-        List<Long> startTimes = new ArrayList<>();
+        // chunks of [1, size)
+        int parallelism = ForkJoinPool.commonPool().getParallelism();
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, (size - 1) / (4 * parallelism) + 1);
+        int chunkCount = (size - 2) / chunkSize + 1;
+
+        // phase 1: the composed function of each chunk
+        long[] chunkC = new long[chunkCount], chunkB = new long[chunkCount];
+        IntStream.range(0, chunkCount).parallel().forEach(chunk -> {
+            int from = 1 + chunk * chunkSize, to = Math.min(size, from + chunkSize);
+            long c = 0, b = Long.MIN_VALUE, dequeueTime, ci, bi;
+            for (int i = from; i < to; i++) {
+                dequeueTime = dequeueTimes != null ? dequeueTimes[i] : maxDequeueTime;
+                ci = processingTimes[i - 1] + dequeueTime;
+                bi = arrivalTimes[i] + dequeueTime;
+                // compose f[i] after the functions so far
+                b = i == from ? bi : Math.max(b + ci, bi);
+                c += ci;
+            }
+            chunkC[chunk] = c;
+            chunkB[chunk] = b;
+        });
 
-        long arrivalTime = arrivalTimes.get(0);
-        long startTime = arrivalTime;
+        // phase 2: the start time before each chunk
+        long[] chunkStarts = new long[chunkCount];
+        long startTime = startTimes[0];
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            chunkStarts[chunk] = startTime;
+            startTime = Math.max(startTime + chunkC[chunk], chunkB[chunk]);
+        }
+
+        // phase 3: scan each chunk from its start time
+        IntStream.range(0, chunkCount).parallel().forEach(chunk -> {
+            int from = 1 + chunk * chunkSize, to = Math.min(size, from + chunkSize);
+            scan(arrivalTimes, dequeueTimes, maxDequeueTime, processingTimes, startTimes,
+                    chunkStarts[chunk], from, to);
+        });
+
+        return startTimes;
+    }
+
+    /**
+     * The sequential algorithm: calculates the start times in [from, to) from the given start time
+     * of the request at from - 1.
+     */
+    private static void scan(long[] arrivalTimes, long[] dequeueTimes, long maxDequeueTime,
+                             long[] processingTimes, long[] startTimes, long startTime, int from,
+                             int to) {
+        long arrivalTime;
         long prevFinishTime;
-        startTimes.add( startTime );
 
-        for (int i = 1; i < size; i++) {
-            arrivalTime = arrivalTimes.get(i);
-            prevFinishTime = startTime + processingTimes.get(i - 1);
+        for (int i = from; i < to; i++) {
+            arrivalTime = arrivalTimes[i];
+            prevFinishTime = startTime + processingTimes[i - 1];
             startTime = prevFinishTime > arrivalTime ? prevFinishTime : arrivalTime;
             if (dequeueTimes != null) {
-                startTime += dequeueTimes.get(i);
+                startTime += dequeueTimes[i];
             }
             else {
                 startTime += maxDequeueTime;
             }
-            startTimes.add(startTime);
+            startTimes[i] = startTime;
+        }
+    }
+
+    /**
+     * Calculates the start times when the requests are served by the given number of servers in
+     * the order of their arrival.
+     */
+    protected long[] startTimes(long[] arrivalTimes, int serverCount, long[] processingTimes) {
+        int size = arrivalTimes.length;
+
+        long[] startTimes = new long[size];
+
+        // there are at least as many servers as requests: each starts on arrival
+        if (serverCount >= size) {
+            System.arraycopy(arrivalTimes, 0, startTimes, 0, size);
+            return startTimes;
+        }
+
+        long[] freeTimes = new long[serverCount];
+        Arrays.fill(freeTimes, Long.MIN_VALUE);
+
+        long arrivalTime, startTime;
+        int server;
+        for (int i = 0; i < size; i++) {
+            // the server that becomes free first
+            server = 0;
+            for (int j = 1; j < serverCount; j++) {
+                if (freeTimes[j] < freeTimes[server]) { server = j; }
+            }
+
+            arrivalTime = arrivalTimes[i];
+            startTime = freeTimes[server] > arrivalTime ? freeTimes[server] : arrivalTime;
+            freeTimes[server] = startTime + processingTimes[i];
+            startTimes[i] = startTime;
         }
 
         return startTimes;
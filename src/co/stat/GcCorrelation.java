@@ -0,0 +1,137 @@
+package co.stat;
+
+import co.Benchmark;
+import co.Sys;
+
+import java.util.Arrays;
+
+/**
+ * Correlates the recorded requests of a benchmark with the GC pauses recorded by a GcMonitor, in
+ * order to tell whether a latency spike came from the task or from a GC pause.
+ *
+ * PROCESS: A request is GC-affected if a pause overlaps its service window (from its arrival up to
+ * its finish), ie. the request waited or was processed during the pause, otherwise it is clean.
+ * The recorded timings are replayed in the order of arrival (see Timings), each request is recorded
+ * into the histograms of the GC-affected or of the clean requests.
+ *
+ * NOTES:
+ *
+ * - The recorded timings must be kept
+ * - The pauses are reported in milliseconds (see GcMonitor), truncated, and they are converted to
+ *   nanoTime by an offset of millisecond precision, hence each pause is extended by a millisecond
+ *   on both sides when checking the overlap
+ */
+public class GcCorrelation {
+    private static final long PRECISION_NS = 1_000_000;
+
+    private final GcMonitor monitor;
+    private final BenchmarkHistograms affected = new BenchmarkHistograms(),
+            clean = new BenchmarkHistograms();
+
+    // the pauses and their total within the benchmark
+    private final int pauseCount;
+    private final long pauseTimeNs;
+
+    /**
+     * Splits the requests of the given recording by the pauses of the given monitor.
+     */
+    public GcCorrelation(Benchmark.Recording recording, GcMonitor monitor) {
+        Sys.assertTrue(recording.isKept());
+
+        this.monitor = monitor;
+        long[] starts = monitor.getPauseStarts(), ends = monitor.getPauseEnds();
+
+        int serverCount = recording.getServerCount();
+        Timings timings = new Timings(new OnlineCorrectionScheme(0, serverCount), serverCount);
+        boolean queueTimings = recording.hasQueueTimings();
+        long arrival, finish, firstArrival = Long.MAX_VALUE, lastFinish = Long.MIN_VALUE;
+        for (int i = 0; i < recording.size(); i++) {
+            arrival = recording.getArrival(i);
+            finish = recording.getFinish(i);
+            if (queueTimings) {
+                timings.next(arrival, recording.getEnqueue(i), recording.getDequeue(i),
+                        recording.getStart(i), finish);
+            }
+            else {
+                timings.next(arrival, recording.getStart(i), finish);
+            }
+            (overlaps(starts, ends, arrival, finish) ? affected : clean)
+                    .record(timings, arrival, finish);
+
+            firstArrival = Math.min(firstArrival, arrival);
+            lastFinish = Math.max(lastFinish, finish);
+        }
+
+        // the pauses within the benchmark
+        int n = 0;
+        for (int i = 0; i < starts.length; i++) {
+            if (ends[i] > firstArrival && starts[i] < lastFinish) { n++; }
+        }
+        pauseCount = n;
+        pauseTimeNs = recording.size() > 0 ? monitor.getPauseTimeNs(firstArrival, lastFinish) : 0;
+    }
+
+    /**
+     * Returns true if a pause overlaps the given period. The pauses are sorted by their start and
+     * do not overlap each other.
+     */
+    private static boolean overlaps(long[] starts, long[] ends, long fromNs, long toNs) {
+        // the first pause ending at or after the start of the period
+        int i = Arrays.binarySearch(ends, fromNs - PRECISION_NS);
+        if (i < 0) { i = -i - 1; }
+        return i < starts.length && starts[i] - PRECISION_NS <= toNs;
+    }
+
+    public GcMonitor getMonitor() {
+        return monitor;
+    }
+
+    /**
+     * Returns the histograms of the requests overlapping a GC pause.
+     */
+    public BenchmarkHistograms getAffected() {
+        return affected;
+    }
+
+    /**
+     * Returns the histograms of the requests not overlapping any GC pause.
+     */
+    public BenchmarkHistograms getClean() {
+        return clean;
+    }
+
+    public int getPauseCount() {
+        return pauseCount;
+    }
+
+    public long getPauseTimeNs() {
+        return pauseTimeNs;
+    }
+
+    /**
+     * Prints out the GC pauses and the service and processing time of the GC-affected and the clean
+     * requests.
+     */
+    public void printOut() {
+        int MILLION = 1_000_000;
+        Sys.printlnOut(String.format("GC: %d pauses, %f ms in total", pauseCount,
+                (double) pauseTimeNs / MILLION));
+        Sys.printlnOut("  " + line("GC-affected", affected));
+        Sys.printlnOut("  " + line("clean", clean));
+    }
+
+    private static String line(String name, BenchmarkHistograms histograms) {
+        int MILLION = 1_000_000;
+        Histogram service = histograms.getService(), processing = histograms.getProcessing();
+        return String.format(
+                "%25s: %d requests, service 50%%: %f ms, 99%%: %f ms, max: %f ms, " +
+                        "processing 99%%: %f ms, max: %f ms",
+                name,
+                histograms.getCount(),
+                (double) service.getValueAtPercentile(50) / MILLION,
+                (double) service.getValueAtPercentile(99) / MILLION,
+                (double) service.getMax() / MILLION,
+                (double) processing.getValueAtPercentile(99) / MILLION,
+                (double) processing.getMax() / MILLION);
+    }
+}
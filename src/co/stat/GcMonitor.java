@@ -0,0 +1,216 @@
+package co.stat;
+
+import co.Sys;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Records the GC pauses while a benchmark is running, in the time base of System.nanoTime, so they
+ * can be correlated with the recorded requests (see GcCorrelation).
+ *
+ * PROCESS: The monitor subscribes to the GC notifications of every GarbageCollectorMXBean. Each
+ * notification reports the start and end of a collection in milliseconds since the start of the
+ * JVM, which is converted to nanoTime by the offset measured when the monitor is started.
+ *
+ * NOTES:
+ *
+ * - The pauses are known with millisecond precision only
+ * - Concurrent collections (eg. the concurrent cycles of G1, ZGC, Shenandoah) are not pauses, they
+ *   are ignored
+ * - The notifications are delivered asynchronously, after the pause, hence the pauses are read
+ *   after the benchmark, and stop waits (up to a second) for the notifications of the collections
+ *   counted by the GarbageCollectorMXBeans so far
+ * - Relies on the com.sun.management extension of the JMX API (HotSpot, OpenJ9)
+ */
+public class GcMonitor implements NotificationListener {
+    private static final long NOTIFICATION_TIMEOUT_NS = 1_000_000_000;
+
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+
+    // the number of collections when the monitor was started and the notifications received since
+    private long collectionCount;
+    private volatile long notificationCount;
+
+    // nanoTime at the start of the JVM
+    private long offsetNs;
+
+    // the recorded pauses, in the order of notification
+    private long[] startsNs = new long[64], endsNs = new long[64];
+    private int count;
+
+    /**
+     * Subscribes to the GC notifications.
+     */
+    public void start() {
+        offsetNs = System.nanoTime() -
+                ManagementFactory.getRuntimeMXBean().getUptime() * 1_000_000;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter) {
+                NotificationEmitter emitter = (NotificationEmitter) collector;
+                emitter.addNotificationListener(this, null, null);
+                emitters.add(emitter);
+            }
+        }
+        // counted after subscribing, so no collection is counted without its notification
+        collectionCount = getCollectionCount();
+    }
+
+    /**
+     * Waits for the notifications of the collections so far, then unsubscribes from the GC
+     * notifications.
+     */
+    public void stop() {
+        long timeoutNs = System.nanoTime() + NOTIFICATION_TIMEOUT_NS;
+        while (notificationCount < getCollectionCount() - collectionCount &&
+                System.nanoTime() < timeoutNs) {
+            try { Thread.sleep(1); }
+            catch (InterruptedException e) {
+                Sys.debug("waiting for GC notifications interrupted");
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (notificationCount < getCollectionCount() - collectionCount) {
+            Sys.debug("GC notifications missing");
+        }
+
+        for (NotificationEmitter emitter : emitters) {
+            try { emitter.removeNotificationListener(this); }
+            catch (ListenerNotFoundException e) { Sys.debug("GC listener not found"); }
+        }
+        emitters.clear();
+    }
+
+    /**
+     * Returns the total number of collections of the subscribed collectors (including the
+     * concurrent ones, as they are notified as well).
+     */
+    private long getCollectionCount() {
+        long total = 0;
+        for (NotificationEmitter emitter : emitters) {
+            total += Math.max(0, ((GarbageCollectorMXBean) emitter).getCollectionCount());
+        }
+        return total;
+    }
+
+    @Override
+    public void handleNotification(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(
+                notification.getType())) {
+            return;
+        }
+
+        GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from(
+                (CompositeData) notification.getUserData());
+        synchronized (this) { notificationCount++; }
+        if (isConcurrent(info)) { return; }
+
+        GcInfo gcInfo = info.getGcInfo();
+        add(offsetNs + gcInfo.getStartTime() * 1_000_000,
+                offsetNs + gcInfo.getEndTime() * 1_000_000);
+    }
+
+    private static boolean isConcurrent(GarbageCollectionNotificationInfo info) {
+        String name = info.getGcName(), action = info.getGcAction();
+        return name.contains("Concurrent") || name.contains("Cycles") ||
+                action.contains("concurrent");
+    }
+
+    private synchronized void add(long startNs, long endNs) {
+        if (count == startsNs.length) {
+            startsNs = Arrays.copyOf(startsNs, 2 * count);
+            endsNs = Arrays.copyOf(endsNs, 2 * count);
+        }
+        startsNs[count] = startNs;
+        endsNs[count] = endNs;
+        count++;
+    }
+
+    /**
+     * Returns the number of pauses recorded.
+     */
+    public synchronized int getPauseCount() {
+        return count;
+    }
+
+    /**
+     * Returns the start times of the recorded pauses in ascending order.
+     */
+    public synchronized long[] getPauseStarts() {
+        sort();
+        return Arrays.copyOf(startsNs, count);
+    }
+
+    /**
+     * Returns the end times of the recorded pauses, in the order of their start.
+     */
+    public synchronized long[] getPauseEnds() {
+        sort();
+        return Arrays.copyOf(endsNs, count);
+    }
+
+    /**
+     * Returns the total time of the pauses within the given period.
+     */
+    public synchronized long getPauseTimeNs(long fromNs, long toNs) {
+        long totalNs = 0;
+        for (int i = 0; i < count; i++) {
+            totalNs += Math.max(0, Math.min(toNs, endsNs[i]) - Math.max(fromNs, startsNs[i]));
+        }
+        return totalNs;
+    }
+
+    /**
+     * Sorts the pauses by their start, the notifications of different collectors might arrive
+     * out of order.
+     */
+    private void sort() {
+        for (int i = 1; i < count; i++) {
+            long start = startsNs[i], end = endsNs[i];
+            int j = i - 1;
+            for (; j >= 0 && startsNs[j] > start; j--) {
+                startsNs[j + 1] = startsNs[j];
+                endsNs[j + 1] = endsNs[j];
+            }
+            startsNs[j + 1] = start;
+            endsNs[j + 1] = end;
+        }
+    }
+
+    /**
+     * Writes the pauses to the given CSV file (start;end;duration), the times are relative to
+     * Sys.TIME_ZERO as in the raw stat.
+     */
+    public void toCSV(String path) {
+        long[] starts = getPauseStarts(), ends = getPauseEnds();
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(path))) {
+            writer.write("start;end;duration");
+            writer.newLine();
+            for (int i = 0; i < starts.length; i++) {
+                writer.write((starts[i] - Sys.TIME_ZERO) + ";" + (ends[i] - Sys.TIME_ZERO) + ";" +
+                        (ends[i] - starts[i]));
+                writer.newLine();
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        Sys.printlnOut("GC pauses written to " + path);
+    }
+}
@@ -0,0 +1,333 @@
+package co.stat;
+
+import co.Sys;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A fixed-memory, log-linear histogram of long values (inspired by HdrHistogram[1]).
+ *
+ * FEATURES:
+ *
+ * - Records values in O(1) time with a configurable precision (number of significant decimal
+ *   digits), the memory footprint depends only on the configuration, not on the number of samples
+ * - Arbitrary percentiles (p50, p99, p99.999 etc.), min, max and mean
+ * - Merging (add) and subtraction of histograms of the same configuration
+ * - Compact binary form (write/read), eg. to pass a histogram between processes
+ *
+ * The value range is split into buckets, each bucket covers a power-of-two range and is split into
+ * linear sub-buckets. The number of sub-buckets is chosen so that the relative error of any value
+ * remains below 1/10^significantDigits. Values above the highest trackable value are counted in the
+ * highest sub-bucket, negative values in the lowest one. Min, max and mean are tracked exactly.
+ *
+ * References:
+ *
+ * - [1] <http://hdrhistogram.org/>
+ */
+public class Histogram {
+    /**
+     * The default highest trackable value: an hour in nanoseconds.
+     */
+    public static final long DEFAULT_HIGHEST_TRACKABLE_VALUE = TimeUnit.HOURS.toNanos(1);
+
+    /**
+     * The default number of significant decimal digits.
+     */
+    public static final int DEFAULT_SIGNIFICANT_DIGITS = 3;
+
+    private final long highestTrackableValue;
+    private final int significantDigits;
+
+    // bucket layout
+    private final int subBucketHalfCountMagnitude, subBucketHalfCount, subBucketCount,
+            leadingZeroCountBase;
+    private final long subBucketMask;
+    private final long[] counts;
+
+    // exact statistics
+    private long totalCount, min, max;
+    private double sum;
+
+    /**
+     * Initializes a histogram with the default highest trackable value and precision.
+     */
+    public Histogram() {
+        this(DEFAULT_HIGHEST_TRACKABLE_VALUE, DEFAULT_SIGNIFICANT_DIGITS);
+    }
+
+    /**
+     * Initializes a histogram tracking values between 0 and the given highest value with the given
+     * number of significant decimal digits (1..5).
+     */
+    public Histogram(long highestTrackableValue, int significantDigits) {
+        Sys.assertTrue(highestTrackableValue >= 2 && significantDigits >= 1
+                && significantDigits <= 5);
+
+        this.highestTrackableValue = highestTrackableValue;
+        this.significantDigits = significantDigits;
+
+        // sub-buckets: the smallest power of two that is at least 2 * 10^significantDigits
+        long largestValueWithSingleUnitResolution = 2 * (long) Math.pow(10, significantDigits);
+        int subBucketCountMagnitude = 64 - Long.numberOfLeadingZeros(
+                largestValueWithSingleUnitResolution - 1);
+        subBucketHalfCountMagnitude = subBucketCountMagnitude - 1;
+        subBucketCount = 1 << subBucketCountMagnitude;
+        subBucketHalfCount = subBucketCount / 2;
+        subBucketMask = subBucketCount - 1;
+        leadingZeroCountBase = 64 - subBucketHalfCountMagnitude - 1;
+
+        // buckets: as many as necessary to cover the highest trackable value
+        long trackableValue = subBucketCount;
+        int bucketCount = 1;
+        while (trackableValue <= highestTrackableValue) {
+            if (trackableValue > Long.MAX_VALUE / 2) {
+                bucketCount++;
+                break;
+            }
+            trackableValue <<= 1;
+            bucketCount++;
+        }
+        counts = new long[(bucketCount + 1) * subBucketHalfCount];
+
+        reset();
+    }
+
+    /**
+     * Records the given value.
+     */
+    public void record(long value) {
+        record(value, 1);
+    }
+
+    /**
+     * Records the given value the given times.
+     */
+    public void record(long value, long count) {
+        counts[countsIndex(value)] += count;
+        totalCount += count;
+        sum += (double) value * count;
+        if (value < min) { min = value; }
+        if (value > max) { max = value; }
+    }
+
+    /**
+     * Adds the counts of the given histogram to this one. Both must have the same configuration.
+     */
+    public void add(Histogram other) {
+        assertCompatible(other);
+
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        sum += other.sum;
+        if (other.min < min) { min = other.min; }
+        if (other.max > max) { max = other.max; }
+    }
+
+    /**
+     * Subtracts the counts of the given histogram from this one. Both must have the same
+     * configuration and the given histogram must be a subset of this one. Since the exact min and
+     * max cannot be restored, they are re-estimated from the remaining buckets.
+     */
+    public void subtract(Histogram other) {
+        assertCompatible(other);
+
+        for (int i = 0; i < counts.length; i++) {
+            Sys.assertTrue(counts[i] >= other.counts[i]);
+            counts[i] -= other.counts[i];
+        }
+        totalCount -= other.totalCount;
+        sum -= other.sum;
+
+        min = Long.MAX_VALUE;
+        max = Long.MIN_VALUE;
+        if (totalCount > 0) {
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) { min = valueFromIndex(i); break; }
+            }
+            for (int i = counts.length - 1; i >= 0; i--) {
+                if (counts[i] > 0) { max = highestEquivalentValue(valueFromIndex(i)); break; }
+            }
+        }
+    }
+
+    /**
+     * Clears all the recorded values.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = Long.MIN_VALUE;
+    }
+
+    /**
+     * Returns a new histogram with the same configuration and content.
+     */
+    public Histogram copy() {
+        Histogram copy = new Histogram(highestTrackableValue, significantDigits);
+        copy.add(this);
+        return copy;
+    }
+
+    /**
+     * Returns the value at the given percentile (0..100), ie. the highest value that is equivalent
+     * (within the precision of the histogram) to the smallest recorded value which is greater than
+     * or equal to the given percentage of the samples. Returns 0 if the histogram is empty.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) { return 0; }
+
+        double percentage = Math.min(Math.max(percentile, 0), 100);
+        long countAtPercentile = Math.max(1, (long) Math.ceil(percentage / 100 * totalCount));
+        long cumulativeCount = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulativeCount += counts[i];
+            if (cumulativeCount >= countAtPercentile) {
+                long value = highestEquivalentValue(valueFromIndex(i));
+                return Math.max(Math.min(value, max), min);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Writes the histogram in a compact binary form: the configuration, the exact statistics and
+     * the index and count of the non-empty sub-buckets only.
+     */
+    public void write(DataOutput output) throws IOException {
+        output.writeLong(highestTrackableValue);
+        output.writeInt(significantDigits);
+        output.writeLong(totalCount);
+        output.writeLong(min);
+        output.writeLong(max);
+        output.writeDouble(sum);
+
+        int nonEmptyCount = 0;
+        for (long count : counts) {
+            if (count > 0) { nonEmptyCount++; }
+        }
+        output.writeInt(nonEmptyCount);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                output.writeInt(i);
+                output.writeLong(counts[i]);
+            }
+        }
+    }
+
+    /**
+     * Reads a histogram written by write.
+     */
+    public static Histogram read(DataInput input) throws IOException {
+        Histogram histogram = new Histogram(input.readLong(), input.readInt());
+        histogram.totalCount = input.readLong();
+        histogram.min = input.readLong();
+        histogram.max = input.readLong();
+        histogram.sum = input.readDouble();
+
+        int nonEmptyCount = input.readInt();
+        for (int j = 0; j < nonEmptyCount; j++) {
+            int index = input.readInt();
+            if (index < 0 || index >= histogram.counts.length) {
+                throw new IOException("invalid histogram index: " + index);
+            }
+            histogram.counts[index] = input.readLong();
+        }
+        return histogram;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Returns the minimum recorded value or 0 if the histogram is empty.
+     */
+    public long getMin() {
+        return totalCount == 0 ? 0 : min;
+    }
+
+    /**
+     * Returns the maximum recorded value or 0 if the histogram is empty.
+     */
+    public long getMax() {
+        return totalCount == 0 ? 0 : max;
+    }
+
+    /**
+     * Returns the mean of the recorded values or 0 if the histogram is empty.
+     */
+    public double getMean() {
+        return totalCount == 0 ? 0 : sum / totalCount;
+    }
+
+    public long getHighestTrackableValue() {
+        return highestTrackableValue;
+    }
+
+    public int getSignificantDigits() {
+        return significantDigits;
+    }
+
+    /**
+     * Returns the length of the counts array (see Bootstrap).
+     */
+    int getCountsLength() {
+        return counts.length;
+    }
+
+    /**
+     * Returns the count at the given index of the counts array (see Bootstrap).
+     */
+    long getCountAtIndex(int index) {
+        return counts[index];
+    }
+
+    /**
+     * Returns the index of the counts array where the given value is counted.
+     */
+    protected int countsIndex(long value) {
+        if (value < 0) { value = 0; }
+        else if (value > highestTrackableValue) { value = highestTrackableValue; }
+
+        int bucketIndex = leadingZeroCountBase - Long.numberOfLeadingZeros(value | subBucketMask);
+        int subBucketIndex = (int) (value >>> bucketIndex);
+        return ((bucketIndex + 1) << subBucketHalfCountMagnitude)
+                + (subBucketIndex - subBucketHalfCount);
+    }
+
+    /**
+     * Returns the lowest value that is counted at the given index of the counts array.
+     */
+    protected long valueFromIndex(int index) {
+        int bucketIndex = (index >> subBucketHalfCountMagnitude) - 1;
+        int subBucketIndex = (index & (subBucketHalfCount - 1)) + subBucketHalfCount;
+        if (bucketIndex < 0) {
+            subBucketIndex -= subBucketHalfCount;
+            bucketIndex = 0;
+        }
+        return ((long) subBucketIndex) << bucketIndex;
+    }
+
+    /**
+     * Returns the highest value that is equivalent to the given one, ie. counted in the same
+     * sub-bucket.
+     */
+    protected long highestEquivalentValue(long value) {
+        int bucketIndex = leadingZeroCountBase - Long.numberOfLeadingZeros(value | subBucketMask);
+        long lowestEquivalentValue = (value >>> bucketIndex) << bucketIndex;
+        return lowestEquivalentValue + (1L << bucketIndex) - 1;
+    }
+
+    private void assertCompatible(Histogram other) {
+        Sys.assertTrue(other.highestTrackableValue == highestTrackableValue
+                && other.significantDigits == significantDigits);
+    }
+}
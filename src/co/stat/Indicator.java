@@ -1,40 +1,77 @@
 package co.stat;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-
 /**
  * Struct that holds the following indicators of a sample: average value, min/max and Nth
- * percentile.
+ * percentile. The sample is held by a Histogram, hence any other percentile can be queried as well.
+ * Optionally the confidence intervals of the average and the percentile are estimated as well (see
+ * Bootstrap).
  */
 public class Indicator {
     private String name;
     private double average, min, max;
     private long percentile;
     private int percentage;
+    private Histogram histogram;
+
+    // confidence intervals calculated by calculateConfidenceIntervals, null if not calculated
+    private ConfidenceInterval averageInterval, percentileInterval;
 
     public Indicator(String name) {
         this.name = name;
     }
 
-    public Indicator(String name, List<Long> sample) {
+    public Indicator(String name, long[] sample) {
+        this(name, histogramOf(sample));
+    }
+
+    public Indicator(String name, Histogram histogram) {
         this.name = name;
+        this.histogram = histogram;
 
-        // average
-        average = sample.stream().mapToLong((val) -> val).average().getAsDouble();
+        average = histogram.getMean();
+        min = histogram.getMin();
+        max = histogram.getMax();
 
-        // min, max, percentile
-        List<Long> sampleClone = new ArrayList<>(sample);
-        Collections.sort(sampleClone);
-        int size = sampleClone.size();
+        percentage = 99;
+        percentile = histogram.getValueAtPercentile(percentage);
+    }
 
-        min = sampleClone.get(0);
-        max = sampleClone.get(size - 1);
+    /**
+     * Returns the value at the given percentile (0..100) of the sample, eg. 99.9.
+     */
+    public long getPercentile(double percentile) {
+        return histogram.getValueAtPercentile(percentile);
+    }
 
-        percentage = 99;
-        int percentageIndex = (int) ((long) percentage * (long) size / 100l);
-        percentile = sampleClone.get(percentageIndex - 1);
+    /**
+     * Estimates the confidence intervals of the average and the percentile by the given bootstrap.
+     */
+    public void calculateConfidenceIntervals(Bootstrap bootstrap) {
+        ConfidenceInterval[] intervals = bootstrap.estimate(histogram, percentage);
+        if (intervals != null) {
+            percentileInterval = intervals[0];
+            averageInterval = intervals[1];
+        }
+    }
+
+    public ConfidenceInterval getAverageInterval() {
+        return averageInterval;
+    }
+
+    public ConfidenceInterval getPercentileInterval() {
+        return percentileInterval;
+    }
+
+    public Histogram getHistogram() {
+        return histogram;
+    }
+
+    private static Histogram histogramOf(long[] sample) {
+        Histogram histogram = new Histogram();
+        for (long value : sample) {
+            histogram.record(value);
+        }
+        return histogram;
     }
 
     public String getName() {
@@ -64,6 +101,18 @@ public class Indicator {
     @Override
     public String toString() {
         int MILLION = 1_000_000;
+        if (averageInterval != null) {
+            return String.format(
+                    "%25s: min: %f ms, avg: %f ms %s, %d%%: %f ms %s, max: %f ms",
+                    name,
+                    min / MILLION,
+                    average / MILLION,
+                    averageInterval,
+                    percentage,
+                    ((double) percentile) / MILLION,
+                    percentileInterval,
+                    max / MILLION);
+        }
         return String.format(
                 "%25s: min: %f ms, avg: %f ms, %d%%: %f ms, max: %f ms",
                 name,
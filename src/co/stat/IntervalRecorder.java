@@ -0,0 +1,236 @@
+package co.stat;
+
+import co.Sys;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Records the histograms of a long running benchmark in intervals, in constant memory.
+ *
+ * PROCESS: Requests are recorded into the histograms of the active interval. When a request
+ * arrives after the end of the active interval, the recording thread hands the closed interval
+ * over to a logger thread and continues with a spare set of histograms (double buffering), so
+ * recording is never stopped. The logger thread writes the closed interval to the interval log,
+ * merges it into the total histograms (ie. the histograms of this object) and returns it as the
+ * next spare.
+ *
+ * FEATURES:
+ *
+ * - Memory footprint does not depend on the length of the run
+ * - Each interval is written to the log as soon as it closes
+ * - The final report is the merge of the intervals
+ *
+ * NOTES:
+ *
+ * - The spare histograms are preallocated (~2.4 MB each), enough for the longest queue of closed
+ *   intervals, so closing an interval never allocates. If the logger falls behind by more than
+ *   QUEUE_SIZE intervals, the recording thread waits for it
+ * - If writing the log fails, the intervals are still merged (only the writes are skipped) and the
+ *   failure is thrown by finish
+ *
+ * RELATIONS:
+ *
+ * - Attached to the Recording by Benchmark when an interval log is configured
+ */
+public class IntervalRecorder extends BenchmarkHistograms {
+    private static final int QUEUE_SIZE = 4;
+
+    private final long intervalNs;
+    private final Timings timings;
+
+    // histograms of the active interval, touched by the recording thread only
+    private BenchmarkHistograms active = new BenchmarkHistograms();
+    private long intervalStart, intervalEnd;
+
+    // closed intervals handed over to the logger and the spare ones handed back: besides the
+    // active one, at most QUEUE_SIZE histograms are queued and one is merged by the logger
+    private final BlockingQueue<Interval> closed = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private final BlockingQueue<BenchmarkHistograms> spares =
+            new ArrayBlockingQueue<>(QUEUE_SIZE + 1);
+
+    private final Thread logger;
+    private final BufferedWriter log;
+
+    // the first failure of writing the log, null if none (read after the logger is joined)
+    private IOException failure;
+
+    /**
+     * Initializes the recorder with the given interval in nanoseconds and log file. The calculated
+     * service time is estimated while recording by the given correction scheme (if not null).
+     */
+    public IntervalRecorder(long intervalNs, String logPath,
+                            OnlineCorrectionScheme correctionScheme) {
+        Sys.assertTrue(intervalNs > 0 && logPath != null);
+
+        this.intervalNs = intervalNs;
+        timings = new Timings(correctionScheme);
+        for (int i = 0; i < QUEUE_SIZE + 1; i++) {
+            spares.offer(new BenchmarkHistograms());
+        }
+
+        try {
+            log = new BufferedWriter(new FileWriter(logPath));
+            log.write("start;end;count;throughput;service p50;service p99;service p99.9;" +
+                    "service max;calculated service p99;processing p50;processing p99;" +
+                    "processing max;lateness p99");
+            log.newLine();
+            log.flush();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        logger = new Thread(this::log, "interval-logger");
+        logger.setDaemon(true);
+        logger.start();
+    }
+
+    @Override
+    public void add(long arrival, long start, long finish) {
+        timings.next(arrival, start, finish);
+        current(arrival).record(timings, arrival, finish);
+    }
+
+    @Override
+    public void add(long arrival, long enqueue, long dequeue, long start, long finish) {
+        timings.next(arrival, enqueue, dequeue, start, finish);
+        current(arrival).record(timings, arrival, finish);
+    }
+
+    /**
+     * Returns the histograms of the interval the given arrival belongs to, closes the active
+     * interval if necessary.
+     */
+    protected BenchmarkHistograms current(long arrival) {
+        if (arrival >= intervalEnd) {
+            if (active.getCount() > 0) {
+                close(arrival);
+            }
+            else {
+                intervalStart = arrival;
+            }
+            intervalEnd = intervalStart + intervalNs;
+        }
+        return active;
+    }
+
+    /**
+     * Closes the active interval and starts the one the given arrival belongs to.
+     */
+    private void close(long arrival) {
+        handOver(new Interval(active, intervalStart, intervalEnd));
+
+        // there is always a spare after the hand over (see spares)
+        try { active = spares.take(); }
+        catch (InterruptedException e) {
+            Sys.debug("waiting for spare histograms interrupted");
+            active = new BenchmarkHistograms();
+        }
+
+        // skip empty intervals
+        intervalStart = intervalEnd + (arrival - intervalEnd) / intervalNs * intervalNs;
+    }
+
+    private void handOver(Interval interval) {
+        try { closed.put(interval); }
+        catch (InterruptedException e) { Sys.debug("interval hand over interrupted"); }
+    }
+
+    /**
+     * Closes the last interval and waits for the logger to merge all the intervals. Throws
+     * UncheckedIOException if writing the log failed.
+     */
+    @Override
+    public void finish() {
+        if (active.getCount() > 0) {
+            handOver(new Interval(active, intervalStart,
+                    Math.min(intervalEnd, active.getLastFinish())));
+        }
+        handOver(Interval.LAST);
+
+        try { logger.join(); }
+        catch (InterruptedException e) { Sys.debug("waiting for interval logger interrupted"); }
+
+        if (failure != null) {
+            throw new UncheckedIOException("writing the interval log failed", failure);
+        }
+    }
+
+    /**
+     * The logger loop: writes, merges and recycles the closed intervals. It runs up to the last
+     * interval even if writing fails, so the recording thread is never blocked.
+     */
+    private void log() {
+        Interval interval;
+        while ((interval = nextClosed()) != Interval.LAST) {
+            if (failure == null) {
+                try { write(interval); }
+                catch (IOException e) {
+                    Sys.debug("writing the interval log failed: " + e.getMessage());
+                    failure = e;
+                }
+            }
+            add(interval.histograms);
+
+            interval.histograms.reset();
+            spares.offer(interval.histograms);
+        }
+
+        try { log.close(); }
+        catch (IOException e) {
+            if (failure == null) { failure = e; }
+        }
+    }
+
+    private Interval nextClosed() {
+        while (true) {
+            try { return closed.take(); }
+            catch (InterruptedException e) { Sys.debug("interval logger interrupted"); }
+        }
+    }
+
+    private void write(Interval interval) throws IOException {
+        BenchmarkHistograms histograms = interval.histograms;
+        long durationNs = interval.end - interval.start;
+        log.write(String.format("%d;%d;%d;%f;%d;%d;%d;%d;%d;%d;%d;%d;%d",
+                interval.start - Sys.TIME_ZERO, interval.end - Sys.TIME_ZERO,
+                histograms.getCount(),
+                durationNs > 0 ? histograms.getCount() * 1_000_000_000d / durationNs : 0,
+                histograms.getService().getValueAtPercentile(50),
+                histograms.getService().getValueAtPercentile(99),
+                histograms.getService().getValueAtPercentile(99.9),
+                histograms.getService().getMax(),
+                histograms.getEstimatedService().getValueAtPercentile(99),
+                histograms.getProcessing().getValueAtPercentile(50),
+                histograms.getProcessing().getValueAtPercentile(99),
+                histograms.getProcessing().getMax(),
+                histograms.getLateness().getValueAtPercentile(99)));
+        log.newLine();
+        log.flush();
+    }
+
+    public long getIntervalNs() {
+        return intervalNs;
+    }
+
+    /**
+     * A closed interval.
+     */
+    private static class Interval {
+        static final Interval LAST = new Interval(null, 0, 0);
+
+        final BenchmarkHistograms histograms;
+        final long start, end;
+
+        Interval(BenchmarkHistograms histograms, long start, long end) {
+            this.histograms = histograms;
+            this.start = start;
+            this.end = end;
+        }
+    }
+}
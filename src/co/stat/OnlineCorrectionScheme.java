@@ -0,0 +1,106 @@
+package co.stat;
+
+import co.Sys;
+
+import java.util.Arrays;
+
+/**
+ * The streaming version of the correction scheme proposed in the paper: estimates the service time
+ * of each request as soon as its arrival and processing time is recorded.
+ *
+ * See: <https://github.com/csomgyula/co/blob/master/paper.md>
+ *
+ * FEATURES:
+ *
+ * - Keeps only the virtual start and processing time of the previous request (or the time each
+ *   server becomes free, when there are multiple servers)
+ * - Gives the same estimates as CorrectionScheme, request by request
+ *
+ * RELATIONS:
+ *
+ * - Called by Timings while recording, hence corrected percentiles are available in interval
+ *   reports and for runs too large to keep in memory
+ */
+public class OnlineCorrectionScheme {
+    private final long maxDequeueTime;
+
+    // single server: the virtual start and the processing time of the previous request
+    private long prevStartTime, prevProcessingTime;
+
+    // multiple servers: the virtual time each server becomes free, null if there is a single one
+    private final long[] freeTimes;
+    private final boolean unbounded;
+
+    private long count;
+
+    /**
+     * Initializes the correction scheme for a single server when neither the dequeue times nor an
+     * upper bound is known.
+     */
+    public OnlineCorrectionScheme() {
+        this(0, 1);
+    }
+
+    /**
+     * Initializes the correction scheme for a single queue served by the given number of servers
+     * (see CorrectionScheme). For a single server an upper bound can be given for the dequeue
+     * times, otherwise it must be 0. Integer.MAX_VALUE stands for unbounded servers, ie. each
+     * request starts on arrival.
+     */
+    public OnlineCorrectionScheme(long maxDequeueTime, int serverCount) {
+        Sys.assertTrue(maxDequeueTime >= 0 && serverCount > 0
+                && (serverCount == 1 || maxDequeueTime == 0));
+
+        this.maxDequeueTime = maxDequeueTime;
+        unbounded = serverCount == Integer.MAX_VALUE;
+        if (serverCount > 1 && !unbounded) {
+            freeTimes = new long[serverCount];
+            Arrays.fill(freeTimes, Long.MIN_VALUE);
+        }
+        else {
+            freeTimes = null;
+        }
+    }
+
+    /**
+     * Returns the estimated service time of the next request given by its arrival and processing
+     * time.
+     */
+    public long next(long arrivalTime, long processingTime) {
+        long startTime;
+
+        if (unbounded) {
+            startTime = arrivalTime;
+        }
+        else if (freeTimes != null) {
+            // the server that becomes free first
+            int server = 0;
+            for (int j = 1; j < freeTimes.length; j++) {
+                if (freeTimes[j] < freeTimes[server]) { server = j; }
+            }
+            startTime = freeTimes[server] > arrivalTime ? freeTimes[server] : arrivalTime;
+            freeTimes[server] = startTime + processingTime;
+        }
+        else if (count == 0) {
+            startTime = arrivalTime;
+        }
+        else {
+            long prevFinishTime = prevStartTime + prevProcessingTime;
+            startTime = (prevFinishTime > arrivalTime ? prevFinishTime : arrivalTime)
+                    + maxDequeueTime;
+        }
+
+        prevStartTime = startTime;
+        prevProcessingTime = processingTime;
+        count++;
+
+        return startTime - arrivalTime + processingTime;
+    }
+
+    /**
+     * Returns the number of requests estimated so far.
+     */
+    public long getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,185 @@
+package co.stat;
+
+import co.Benchmark;
+import co.Sys;
+
+import java.util.Arrays;
+
+/**
+ * Records the histograms of each phase of a load profile (see co.load.Profile) besides the
+ * histograms of the whole run (ie. the histograms of this object), in constant memory.
+ *
+ * PROCESS: The phase of a request is given by its arrival relative to the first arrival, which is
+ * the start of the profile. The requests are recorded into the histograms of their phase, and the
+ * requests arriving within the transition window (the beginning of each phase but the first) into
+ * the histograms of the transition as well. The transition shows how the service copes with the
+ * change of the load, eg. the backlog of an overload is served in the next phase.
+ *
+ * The recovery time of a phase is the time from its start until the arrival of the first request
+ * that did not wait (wait time is 0, see Timings), ie. the backlog of the previous phase is
+ * drained. It is meaningful for a single server, ie. the Benchmark itself.
+ *
+ * RELATIONS:
+ *
+ * - Attached to the Recording by Benchmark when the Load is a Profile
+ * - Printed by BenchmarkIndicators
+ */
+public class PhaseRecorder extends BenchmarkHistograms {
+    private final String[] names;
+    private final long[] endsNs;
+    private final long transitionNs;
+    private final Timings timings;
+
+    // the histograms of the phases and the transitions (null for the first phase)
+    private final BenchmarkHistograms[] phases, transitions;
+
+    // the recovery time of each phase, -1 until a request of the phase does not wait
+    private final long[] recoveriesNs;
+
+    // the start of the profile (the first arrival), the current phase and its start
+    private long originNs;
+    private int phase;
+    private long phaseStartNs;
+
+    /**
+     * Initializes the recorder with the given names and ends (relative to the start of the profile)
+     * of the phases and the length of the transition windows in nanoseconds. The calculated service
+     * time is estimated while recording by the given correction scheme (if not null).
+     */
+    public PhaseRecorder(String[] names, long[] endsNs, long transitionNs,
+                         OnlineCorrectionScheme correctionScheme) {
+        Sys.assertTrue(names.length > 0 && names.length == endsNs.length && transitionNs > 0);
+
+        this.names = names;
+        this.endsNs = endsNs;
+        this.transitionNs = transitionNs;
+        timings = new Timings(correctionScheme);
+
+        phases = new BenchmarkHistograms[names.length];
+        transitions = new BenchmarkHistograms[names.length];
+        recoveriesNs = new long[names.length];
+        Arrays.fill(recoveriesNs, -1);
+        for (int i = 0; i < names.length; i++) {
+            phases[i] = new BenchmarkHistograms();
+            if (i > 0) { transitions[i] = new BenchmarkHistograms(); }
+        }
+    }
+
+    @Override
+    public void add(long arrival, long start, long finish) {
+        timings.next(arrival, start, finish);
+        record(arrival, finish);
+    }
+
+    @Override
+    public void add(long arrival, long enqueue, long dequeue, long start, long finish) {
+        timings.next(arrival, enqueue, dequeue, start, finish);
+        record(arrival, finish);
+    }
+
+    /**
+     * Records the current timings into the histograms of the whole run, of the phase and of the
+     * transition of the given arrival.
+     */
+    private void record(long arrival, long finish) {
+        if (getCount() == 0) { originNs = arrival; }
+        record(timings, arrival, finish);
+
+        // the phase of the arrival, the requests are recorded in the order of arrival
+        long timeNs = arrival - originNs;
+        while (phase < endsNs.length - 1 && timeNs >= endsNs[phase]) {
+            phaseStartNs = endsNs[phase++];
+        }
+        long phaseTimeNs = timeNs - phaseStartNs;
+
+        phases[phase].record(timings, arrival, finish);
+        if (phase > 0 && phaseTimeNs < transitionNs) {
+            transitions[phase].record(timings, arrival, finish);
+        }
+
+        if (recoveriesNs[phase] < 0 && timings.getWait() == 0) {
+            recoveriesNs[phase] = phaseTimeNs;
+        }
+    }
+
+    /**
+     * Returns the recovery time of the given phase in nanoseconds, ie. the time from the start of
+     * the phase until the arrival of the first request that did not wait. It is -1 if every
+     * request of the phase waited (not recovered).
+     */
+    public long getRecoveryNs(int phase) {
+        return recoveriesNs[phase];
+    }
+
+    /**
+     * Returns the indicators of the given phase.
+     */
+    public BenchmarkIndicators getPhaseIndicators(int phase) {
+        return indicatorsOf(phases[phase]);
+    }
+
+    /**
+     * Returns the indicators of the transition into the given phase, null for the first phase.
+     */
+    public BenchmarkIndicators getTransitionIndicators(int phase) {
+        return phase > 0 ? indicatorsOf(transitions[phase]) : null;
+    }
+
+    private static BenchmarkIndicators indicatorsOf(BenchmarkHistograms histograms) {
+        BenchmarkRaw raw = new BenchmarkRaw(new Benchmark.Recording(0, false, histograms));
+        raw.calculate();
+        BenchmarkIndicators indicators = new BenchmarkIndicators(raw);
+        indicators.calculate();
+        return indicators;
+    }
+
+    public int getPhaseCount() {
+        return names.length;
+    }
+
+    public String getPhaseName(int phase) {
+        return names[phase];
+    }
+
+    public long getTransitionNs() {
+        return transitionNs;
+    }
+
+    /**
+     * Prints out a line per phase and per transition, and the GC time of each phase if the given
+     * monitor is not null.
+     */
+    public void printOut(GcMonitor gcMonitor) {
+        Sys.printlnOut("Phases (transition: the first " + transitionNs / 1_000_000d +
+                " ms of the phase):");
+        long startNs = originNs, endNs;
+        for (int i = 0; i < names.length; i++) {
+            endNs = i < names.length - 1 ? originNs + endsNs[i] : Long.MAX_VALUE;
+            String gc = gcMonitor == null ? "" : String.format(", GC: %f ms",
+                    gcMonitor.getPauseTimeNs(startNs, endNs) / 1_000_000d);
+            startNs = endNs;
+            Sys.printlnOut("  " + line(names[i], phases[i]) + gc);
+            if (i > 0) {
+                String recovery = recoveriesNs[i] < 0 ? "not recovered" :
+                        String.format("recovered in %f ms", recoveriesNs[i] / 1_000_000d);
+                Sys.printlnOut("  " + line("transition", transitions[i]) + ", " + recovery);
+            }
+        }
+    }
+
+    private static String line(String name, BenchmarkHistograms histograms) {
+        int MILLION = 1_000_000;
+        Histogram service = histograms.getService();
+        return String.format(
+                "%25s: %d requests, %f requests/s, service 50%%: %f ms, 99%%: %f ms, " +
+                        "max: %f ms, calculated service 99%%: %f ms",
+                name,
+                histograms.getCount(),
+                histograms.getDuration() > 0 ?
+                        histograms.getCount() * 1_000_000_000d / histograms.getDuration() : 0,
+                (double) service.getValueAtPercentile(50) / MILLION,
+                (double) service.getValueAtPercentile(99) / MILLION,
+                (double) service.getMax() / MILLION,
+                (double) histograms.getEstimatedService().getValueAtPercentile(99) / MILLION);
+    }
+}
@@ -0,0 +1,224 @@
+package co.stat;
+
+import co.Sys;
+
+import java.util.Arrays;
+
+/**
+ * Calculates the derived timings of the requests incrementally, one request at a time, in the
+ * order of their arrival. It only keeps the arrival and finish time of the previous request (and
+ * the time each server becomes free, when there are multiple servers).
+ *
+ * The timings are the following:
+ *
+ * idle time is the period during the request is not processed, formally:
+ *
+ *      idle = start - arrival
+ *
+ * dequeue is the time necessary to dequeue the request and start its processing, formally:
+ *
+ *                start - previous finish time : if the request is already in the queue when
+ *                                               the previous request finished
+ *      dequeue =
+ *                start - arrival time : if the request arrived later then the finish of the
+ *                                       previous request
+ *
+ * unless the queue timings are measured (see WorkerPool), in which case:
+ *
+ *      dequeue = start - dequeue time
+ *
+ * With multiple servers, the previous finish time (here and in the lateness) is the time the server
+ * of the request became free, as the requests are processed in the order of their arrival by the
+ * server that becomes free first (in line with CorrectionScheme).
+ *
+ * wait is the time while the request is in the queue:
+ *
+ *      wait = idle - dequeue
+ *
+ * processing is the active processing time of the request:
+ *
+ *      processing = finish - start
+ *
+ * grossProcessing is the active processing time of the request plus dequeue time:
+ *
+ *      grossProcessing = processing + dequeue
+ *
+ * service is the total service time starting from arrival up to finish:
+ *
+ *      service = finish - arrival
+ *
+ * arrival diff is the time diff between two consecutive requests (not defined for the first one),
+ * that is:
+ *
+ *      arrival diff = arrival - previous arrival
+ *
+ * schedule lateness is how late the harness itself issued the request compared to its
+ * scheduled arrival (see Scheduler), formally:
+ *
+ *                  start - arrival : if the previous request finished before the arrival, ie.
+ *                                    the benchmark waited for the arrival
+ *      lateness =  0 : otherwise
+ *
+ * unless the queue timings are measured, in which case:
+ *
+ *      lateness = enqueue - arrival
+ *
+ * Optionally, the calculated service time is estimated as well by an OnlineCorrectionScheme (not
+ * defined for the first request, in line with CorrectionScheme).
+ */
+public class Timings {
+    // timings of the current request
+    private long idle, wait, dequeue, processing, grossProcessing, service, arrivalDiff, lateness,
+            estimatedService;
+
+    // estimates the calculated service time, null if it is not estimated
+    private final OnlineCorrectionScheme correctionScheme;
+
+    // previous request
+    private long prevArrival, prevFinish = Long.MIN_VALUE;
+    private long count;
+
+    // multiple servers: the time each server becomes free, null if there is a single one
+    private final long[] freeTimes;
+    private final boolean unbounded;
+
+    /**
+     * Initializes the calculator for a single server without estimating the calculated service
+     * time.
+     */
+    public Timings() {
+        this(null);
+    }
+
+    /**
+     * Initializes the calculator for a single server which estimates the calculated service time
+     * by the given correction scheme.
+     */
+    public Timings(OnlineCorrectionScheme correctionScheme) {
+        this(correctionScheme, 1);
+    }
+
+    /**
+     * Initializes the calculator for the given number of servers (see Benchmark.Recording) which
+     * estimates the calculated service time by the given correction scheme (if not null).
+     * Integer.MAX_VALUE stands for unbounded servers, ie. each request has a server of its own.
+     */
+    public Timings(OnlineCorrectionScheme correctionScheme, int serverCount) {
+        Sys.assertTrue(serverCount > 0);
+
+        this.correctionScheme = correctionScheme;
+        unbounded = serverCount == Integer.MAX_VALUE;
+        if (serverCount > 1 && !unbounded) {
+            freeTimes = new long[serverCount];
+            Arrays.fill(freeTimes, Long.MIN_VALUE);
+        }
+        else {
+            freeTimes = null;
+        }
+    }
+
+    /**
+     * Calculates the timings of the next request from its arrival and start/finish time.
+     */
+    public void next(long arrival, long start, long finish) {
+        // the time the server of the request became free
+        long free;
+        if (unbounded) {
+            free = Long.MIN_VALUE;
+        }
+        else if (freeTimes != null) {
+            int server = 0;
+            for (int j = 1; j < freeTimes.length; j++) {
+                if (freeTimes[j] < freeTimes[server]) { server = j; }
+            }
+            free = freeTimes[server];
+            freeTimes[server] = finish;
+        }
+        else {
+            free = prevFinish;
+        }
+
+        idle = start - arrival;
+        dequeue = start - (free > arrival ? free : arrival);
+        lateness = free < arrival ? start - arrival : 0;
+        calculate(arrival, start, finish);
+    }
+
+    /**
+     * Calculates the timings of the next request from its arrival, measured enqueue/dequeue and
+     * start/finish time.
+     */
+    public void next(long arrival, long enqueue, long dequeue, long start, long finish) {
+        idle = start - arrival;
+        this.dequeue = start - dequeue;
+        lateness = enqueue - arrival;
+        calculate(arrival, start, finish);
+    }
+
+    private void calculate(long arrival, long start, long finish) {
+        arrivalDiff = count > 0 ? arrival - prevArrival : 0;
+        wait = idle - dequeue;
+        processing = finish - start;
+        grossProcessing = processing + dequeue;
+        service = idle + processing;
+        if (correctionScheme != null) {
+            estimatedService = correctionScheme.next(arrival, processing);
+        }
+
+        prevArrival = arrival;
+        prevFinish = finish;
+        count++;
+    }
+
+    /**
+     * Returns true if the arrival diff is defined for the current request, ie. it is not the first
+     * one.
+     */
+    public boolean hasArrivalDiff() {
+        return count > 1;
+    }
+
+    /**
+     * Returns true if the calculated service time is defined for the current request, ie. it is
+     * estimated and the request is not the first one.
+     */
+    public boolean hasEstimatedService() {
+        return correctionScheme != null && count > 1;
+    }
+
+    public long getIdle() {
+        return idle;
+    }
+
+    public long getWait() {
+        return wait;
+    }
+
+    public long getDequeue() {
+        return dequeue;
+    }
+
+    public long getProcessing() {
+        return processing;
+    }
+
+    public long getGrossProcessing() {
+        return grossProcessing;
+    }
+
+    public long getService() {
+        return service;
+    }
+
+    public long getArrivalDiff() {
+        return arrivalDiff;
+    }
+
+    public long getLateness() {
+        return lateness;
+    }
+
+    public long getEstimatedService() {
+        return estimatedService;
+    }
+}
@@ -1,5 +1,6 @@
 package co.task;
 
+import co.Blackhole;
 import co.Task;
 
 /** 
@@ -14,4 +15,10 @@ public class Counter implements Task {
      */
     @Override
     public Object execute() { return count++; }
+
+    /**
+     * Increments the counter and consumes it without boxing.
+     */
+    @Override
+    public void execute(Blackhole blackhole) { blackhole.consume(count++); }
 }
\ No newline at end of file
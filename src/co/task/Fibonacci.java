@@ -1,5 +1,6 @@
 package co.task;
 
+import co.Blackhole;
 import co.Sys;
 import co.Task;
 
@@ -46,6 +47,18 @@ public class Fibonacci implements Task {
      */
     @Override
     public Object execute() {
+        return fibonacci();
+    }
+
+    /**
+     * Calculates the Nth Fibonacci number and consumes it without boxing.
+     */
+    @Override
+    public void execute(Blackhole blackhole) {
+        blackhole.consume(fibonacci());
+    }
+
+    private long fibonacci() {
         long fib = 0;
 
         // special cases: index = 0 or 1
@@ -1,5 +1,6 @@
 package co.task;
 
+import co.Blackhole;
 import co.Task;
 import co.Sys;
 import java.util.Random;
@@ -38,6 +39,18 @@ public class RandomizedFibonacci implements Task {
      */
     @Override
     public Object execute() {
+        return fibonacci();
+    }
+
+    /**
+     * Calculates the Nth Fibonacci number (see execute()) and consumes it without boxing.
+     */
+    @Override
+    public void execute(Blackhole blackhole) {
+        blackhole.consume(fibonacci());
+    }
+
+    private long fibonacci() {
         long fib = 0;
         long index = (long) minIndex + (long) random.nextInt(minIndex);
 
@@ -0,0 +1,48 @@
+package co.task;
+
+import co.Blackhole;
+import co.Sys;
+import co.Task;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A simple task to represent I/O bound tasks: it blocks the executing thread for a given time, as
+ * if it waited for a remote call, without using the CPU.
+ */
+public class Sleep implements Task {
+    private final long sleepTimeNs;
+
+    /**
+     * Initializes the task with the given sleep time and time unit.
+     */
+    public Sleep(long sleepTime, TimeUnit unit) {
+        Sys.assertTrue(sleepTime >= 0);
+
+        this.sleepTimeNs = TimeUnit.NANOSECONDS.convert(sleepTime, unit);
+    }
+
+    /**
+     * Executes the logic represented by the Task, this case it sleeps for the given time.
+     */
+    @Override
+    public Object execute() {
+        return sleep();
+    }
+
+    @Override
+    public void execute(Blackhole blackhole) {
+        blackhole.consume(sleep());
+    }
+
+    private long sleep() {
+        try { TimeUnit.NANOSECONDS.sleep(sleepTimeNs); }
+        catch (InterruptedException e) { Sys.debug("sleep task interrupted"); }
+        return sleepTimeNs;
+    }
+
+    @Override
+    public String toString() {
+        return "Sleep for " + (double) sleepTimeNs / 1_000_000d + " ms";
+    }
+}